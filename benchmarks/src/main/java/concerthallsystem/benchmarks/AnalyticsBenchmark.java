@@ -0,0 +1,120 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.analytics.SalesFacts;
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.Seat;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The AnalyticsBenchmark class measures the catalog wide questions answered by
+ * analytics.SalesFacts, over a catalog of concerts spread across two years with
+ * every other seat booked, and booking and un-booking a seat in one of those
+ * concerts while the fact table listens, to show what it adds to a booking.
+ *
+ * @author Daniel Black
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsBenchmark
+{
+    @Param({"12", "120"})
+    private int concertCount;
+
+    @Param({"10000"})
+    private int hallSize;
+
+    private File directory;
+    private SalesFacts salesFacts;
+    private Concert bookedConcert;
+    private Seat[] freeSeats;
+    private int nextFreeSeat;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        this.directory = ConcertFixture.createDirectory();
+        HallLayout layout = ConcertFixture.createLayout(this.directory, this.hallSize);
+        this.salesFacts = new SalesFacts();
+        LocalDate first = LocalDate.of(2030, 1, 1);
+        for(int i = 0; i < this.concertCount; i++) {
+            Concert concert = ConcertFixture.createConcert(
+                    "Benchmark " + i, first.plusMonths(i % 24).toString(), layout, 1000
+            );
+            concert.addBookingListener(this.salesFacts);
+            this.bookedConcert = concert;
+        }
+        //Applies the queued loads before anything is measured
+        this.salesFacts.size();
+
+        //Bronze seats can't be un-booked, so only gold and silver seats are booked and freed
+        List<Seat> free = new ArrayList<>();
+        for(Seat seat : this.bookedConcert.getSeats()) {
+            if(!seat.getStatus() && layout.getSectionOf(seat.getIndex()) < 2) {
+                free.add(seat);
+            }
+        }
+        this.freeSeats = free.toArray(new Seat[0]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        ConcertFixture.delete(this.directory);
+    }
+
+    @Benchmark
+    public SortedMap<YearMonth, Long> getRevenueByMonth()
+    {
+        return this.salesFacts.getRevenueByMonth();
+    }
+
+    @Benchmark
+    public Map<String, Double> getOccupancyBySection()
+    {
+        return this.salesFacts.getOccupancyBySection();
+    }
+
+    @Benchmark
+    public Map<String, Long> getTopCustomers()
+    {
+        return this.salesFacts.getTopCustomers(10);
+    }
+
+    @Benchmark
+    public boolean bookAndUnBookSeat()
+    {
+        Seat seat = this.freeSeats[this.nextFreeSeat];
+        this.nextFreeSeat = (this.nextFreeSeat + 1) % this.freeSeats.length;
+        boolean booked = this.bookedConcert.bookSeat(seat, ConcertFixture.customerName(this.nextFreeSeat % 1000));
+        this.bookedConcert.unBookSeat(seat);
+        return booked;
+    }
+}
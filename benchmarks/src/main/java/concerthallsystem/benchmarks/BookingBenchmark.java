@@ -0,0 +1,143 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.Customer;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.Seat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The BookingBenchmark class measures the in memory operations of a concert:
+ * booking and un-booking, looking up seats and customers, and the report, query
+ * and price change operations behind the seating plan buttons. The concert is
+ * never saved, so no time is spent on the booking journal.
+ *
+ * @author Daniel Black
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark
+{
+    @Param({"90", "10000", "100000"})
+    private int hallSize;
+
+    @Param({"10", "1000"})
+    private int customerCount;
+
+    private File directory;
+    private Concert concert;
+    private Seat[] freeSeats;
+    private String[] rows;
+    private int[] numbers;
+    private String[] names;
+    private String[] sections;
+    private SplittableRandom random;
+    private int nextFreeSeat;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        this.directory = ConcertFixture.createDirectory();
+        HallLayout layout = ConcertFixture.createLayout(this.directory, this.hallSize);
+        this.concert = ConcertFixture.createConcert(layout, this.customerCount);
+
+        //Bronze seats can't be un-booked, so only gold and silver seats are booked and freed
+        List<Seat> free = new ArrayList<>();
+        for(Seat seat : this.concert.getSeats()) {
+            if(!seat.getStatus() && layout.getSectionOf(seat.getIndex()) < 2) {
+                free.add(seat);
+            }
+        }
+        this.freeSeats = free.toArray(new Seat[0]);
+
+        this.random = new SplittableRandom(42);
+        this.rows = new String[1024];
+        this.numbers = new int[1024];
+        this.names = new String[1024];
+        for(int i = 0; i < 1024; i++) {
+            int row = this.random.nextInt(layout.getRowCount());
+            this.rows[i] = layout.getRowLabel(row);
+            this.numbers[i] = 1 + this.random.nextInt(layout.getRowLength(row));
+            this.names[i] = ConcertFixture.customerName(this.random.nextInt(this.customerCount));
+        }
+        this.sections = layout.getSectionNames();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        ConcertFixture.delete(this.directory);
+    }
+
+    private int pick()
+    {
+        return this.random.nextInt(1024);
+    }
+
+    @Benchmark
+    public boolean bookAndUnBookSeat()
+    {
+        Seat seat = this.freeSeats[this.nextFreeSeat];
+        this.nextFreeSeat = (this.nextFreeSeat + 1) % this.freeSeats.length;
+        boolean booked = this.concert.bookSeat(seat, this.names[this.pick()]);
+        this.concert.unBookSeat(seat);
+        return booked;
+    }
+
+    @Benchmark
+    public Seat getSeat()
+    {
+        int i = this.pick();
+        return this.concert.getSeat(this.rows[i], this.numbers[i]);
+    }
+
+    @Benchmark
+    public Customer findCustomer()
+    {
+        return this.concert.findCustomer(this.names[this.pick()]);
+    }
+
+    @Benchmark
+    public List<String> getReport()
+    {
+        return this.concert.getReport();
+    }
+
+    @Benchmark
+    public String queryByCustomer()
+    {
+        return this.concert.queryByCustomer(this.names[this.pick()]);
+    }
+
+    @Benchmark
+    public double setSectionPrice()
+    {
+        String section = this.sections[this.pick() % this.sections.length];
+        this.concert.setSectionPrice(section, 20 + this.pick() % 10);
+        return this.concert.getSectionPrice(section);
+    }
+}
@@ -0,0 +1,86 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.Seat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The ConcertFixture class builds the concerts the benchmarks run against.
+ * A hall of 90 seats is the default layout, any other size is a generated layout
+ * split into gold, silver and bronze thirds, with rows of up to 100 seats.
+ * Every other seat is booked, shared out between the customers in turn, so the
+ * free seats are spread across every row and section.
+ *
+ * @author Daniel Black
+ */
+
+final class ConcertFixture
+{
+    static final String LAYOUT_NAME = "bench";
+    private static final int ROW_LENGTH = 100;
+
+    private ConcertFixture()
+    {
+    }
+
+    static File createDirectory() throws IOException
+    {
+        return Files.createTempDirectory("concerthallsystem-bench").toFile();
+    }
+
+    static HallLayout createLayout(File directory, int hallSize) throws IOException
+    {
+        if(hallSize == HallLayout.DEFAULT.getTotalSeats()) {
+            return HallLayout.DEFAULT;
+        }
+        File layoutDirectory = new File(directory, HallLayout.LAYOUT_DIRECTORY);
+        layoutDirectory.mkdirs();
+        try(PrintWriter output = new PrintWriter(new File(layoutDirectory, LAYOUT_NAME + ".txt"))) {
+            String[] sections = {"Gold", "Silver", "Bronze"};
+            int row = 0;
+            for(int placed = 0; placed < hallSize; placed += ROW_LENGTH, row++) {
+                String section = sections[Math.min(2, placed * 3 / hallSize)];
+                output.println(section + " R" + row + " " + Math.min(ROW_LENGTH, hallSize - placed));
+            }
+        }
+        return HallLayout.forName(LAYOUT_NAME, layoutDirectory);
+    }
+
+    static Concert createConcert(HallLayout layout, int customerCount)
+    {
+        return createConcert("Benchmark", "2030-01-01", layout, customerCount);
+    }
+
+    static Concert createConcert(String name, String date, HallLayout layout, int customerCount)
+    {
+        Concert concert = new Concert(name, date, layout);
+        for(String section : layout.getSectionNames()) {
+            concert.setSectionPrice(section, 25.50);
+        }
+        Seat[] seats = concert.getSeats();
+        for(int i = 0; i < seats.length; i += 2) {
+            concert.bookSeat(seats[i], customerName((i / 2) % customerCount));
+        }
+        return concert;
+    }
+
+    static String customerName(int customer)
+    {
+        return "Customer " + customer;
+    }
+
+    static void delete(File directory) throws IOException
+    {
+        try(Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
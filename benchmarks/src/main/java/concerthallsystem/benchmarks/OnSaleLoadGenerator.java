@@ -0,0 +1,153 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.exceptions.WaitingRoomFullException;
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.Seat;
+import concerthallsystem.main.WaitingRoom;
+import concerthallsystem.metrics.Histogram;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The OnSaleLoadGenerator class plays out a popular concert going on sale, with many
+ * clients all booking and un-booking seats as fast as they can, first straight into
+ * the booking engine and then through a main.WaitingRoom, and prints the throughput
+ * and latency of each, along with how many bookings the waiting room turned away and
+ * how far back in its queue a booking had to wait. Each latency runs from the moment a
+ * client asks to book to the moment it is done, so time spent queuing is counted.
+ * It is not a JMH benchmark, run it with:
+ * java -cp benchmarks/target/benchmarks.jar concerthallsystem.benchmarks.OnSaleLoadGenerator [clients] [seconds] [admission limit] [waiting room size]
+ *
+ * @author Daniel Black
+ */
+
+public final class OnSaleLoadGenerator
+{
+    private static final int HALL_SIZE = 100000;
+    private static final long BACK_OFF_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final Concert concert;
+    private final Seat[] freeSeats;
+    private final int clients;
+    private final long runNanos;
+
+    private OnSaleLoadGenerator(Concert concert, int clients, int seconds)
+    {
+        this.concert = concert;
+        this.clients = clients;
+        this.runNanos = TimeUnit.SECONDS.toNanos(seconds);
+
+        //Bronze seats can't be un-booked, so only gold and silver seats are booked and freed
+        List<Seat> free = new ArrayList<>();
+        for(Seat seat : concert.getSeats()) {
+            if(!seat.getStatus() && concert.getLayout().getSectionOf(seat.getIndex()) < 2) {
+                free.add(seat);
+            }
+        }
+        this.freeSeats = free.toArray(new Seat[0]);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int admissionLimit = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int capacity = args.length > 3 ? Integer.parseInt(args[3]) : clients / 2;
+
+        File directory = ConcertFixture.createDirectory();
+        try {
+            HallLayout layout = ConcertFixture.createLayout(directory, HALL_SIZE);
+            OnSaleLoadGenerator generator = new OnSaleLoadGenerator(
+                    ConcertFixture.createConcert(layout, 1000), clients, seconds
+            );
+            System.out.println(clients + " clients, " + seconds + " seconds each, " + HALL_SIZE + " seats");
+            generator.run("Straight to the engine", null);
+            generator.run(
+                    "Waiting room of " + capacity + ", " + admissionLimit + " let in at once",
+                    new WaitingRoom(admissionLimit, capacity)
+            );
+        }
+        finally {
+            ConcertFixture.delete(directory);
+        }
+    }
+
+    //Runs every client for the set time, going through the waiting room if there is one
+    private void run(String title, WaitingRoom waitingRoom) throws InterruptedException
+    {
+        Histogram latency = new Histogram();
+        LongAdder turnedAway = new LongAdder();
+        long[] furthest = new long[this.clients];
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] threads = new Thread[this.clients];
+        for(int i = 0; i < this.clients; i++) {
+            int client = i;
+            threads[i] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(client);
+                String name = ConcertFixture.customerName(client % 1000);
+                while(!stop.get()) {
+                    Seat seat = this.freeSeats[random.nextInt(this.freeSeats.length)];
+                    long start = System.nanoTime();
+                    if(waitingRoom == null) {
+                        this.bookAndUnBook(seat, name);
+                    }
+                    else {
+                        try(WaitingRoom.Ticket ticket = waitingRoom.join()) {
+                            furthest[client] = Math.max(furthest[client], ticket.getPosition());
+                            ticket.awaitTurn();
+                            this.bookAndUnBook(seat, name);
+                        }
+                        catch(WaitingRoomFullException e) {
+                            turnedAway.increment();
+                            //Backing off is what the exception asks for, rather than trying again straight away
+                            LockSupport.parkNanos(BACK_OFF_NANOS);
+                            continue;
+                        }
+                        catch(InterruptedException e) {
+                            return;
+                        }
+                    }
+                    latency.record(System.nanoTime() - start);
+                }
+            }, "client-" + i);
+        }
+
+        long started = System.nanoTime();
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        TimeUnit.NANOSECONDS.sleep(this.runNanos);
+        stop.set(true);
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        long furthestBack = 0;
+        for(long position : furthest) {
+            furthestBack += position;
+        }
+
+        System.out.println(title);
+        System.out.printf("    %,.0f bookings a second%n", latency.getCount() / elapsed);
+        System.out.println("    latency in microseconds " + latency.snapshot(1000));
+        if(waitingRoom != null) {
+            System.out.println("    turned away " + turnedAway.sum()
+                    + ", furthest back in the queue on average " + furthestBack / this.clients);
+        }
+    }
+
+    private void bookAndUnBook(Seat seat, String name)
+    {
+        if(this.concert.bookSeat(seat, name)) {
+            this.concert.unBookSeat(seat);
+        }
+    }
+}
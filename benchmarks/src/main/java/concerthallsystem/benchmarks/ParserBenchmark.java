@@ -0,0 +1,130 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.exceptions.CustomerIOException;
+import concerthallsystem.exceptions.SeatIOException;
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.Customer;
+import concerthallsystem.main.CustomerRegistry;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.RecordReader;
+import concerthallsystem.main.Seat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ParserBenchmark class compares reading the Customers.txt and Booked_seats.txt
+ * files of a saved concert through main.RecordReader, as the program does, against
+ * the java.util.Scanner based reading it replaced, kept in ScannerLoader. Both read the
+ * same files, register every customer and find the seat and customer of every booked
+ * seat. The larger hall gives a booked seats file of several megabytes, the sizes of
+ * the files are printed when they are written.
+ *
+ * @author Daniel Black
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark
+{
+    @Param({"100000", "1000000"})
+    private int hallSize;
+
+    @Param({"10000"})
+    private int customerCount;
+
+    private File directory;
+    private HallLayout layout;
+    private File customersFile;
+    private File seatsFile;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        this.directory = ConcertFixture.createDirectory();
+        this.layout = ConcertFixture.createLayout(this.directory, this.hallSize);
+        Concert concert = ConcertFixture.createConcert(this.layout, this.customerCount);
+        if(!concert.save(this.directory.getPath())) {
+            throw new IOException("Could not save the benchmark concert");
+        }
+        concert.unload();
+        File concertDirectory = new File(this.directory, concert.toString());
+        this.customersFile = new File(concertDirectory, "Customers.txt");
+        this.seatsFile = new File(concertDirectory, "Booked_seats.txt");
+        System.out.printf(
+                "%nCustomers.txt %.2f MB, Booked_seats.txt %.2f MB%n",
+                this.customersFile.length() / 1e6, this.seatsFile.length() / 1e6
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        ConcertFixture.delete(this.directory);
+    }
+
+    @Benchmark
+    public int recordReader() throws IOException
+    {
+        CustomerRegistry customers = new CustomerRegistry();
+        try(RecordReader input = new RecordReader(this.customersFile)) {
+            while(input.nextLine()) {
+                if(input.isBlank()) {
+                    continue;
+                }
+                try {
+                    customers.add(Customer.load(input, this.customersFile, input.getLineNumber()));
+                }
+                catch(CustomerIOException io) {
+                    continue;
+                }
+            }
+        }
+
+        int loaded = 0;
+        try(RecordReader input = new RecordReader(this.seatsFile)) {
+            while(input.nextLine()) {
+                if(input.isBlank()) {
+                    continue;
+                }
+                try {
+                    Seat seat = Seat.load(input, this.seatsFile, input.getLineNumber(), customers);
+                    if(this.layout.getSeatIndex(seat.getRow(), seat.getNumber()) >= 0
+                            && customers.get(seat.getBookeeId()) != null) {
+                        loaded++;
+                    }
+                }
+                catch(SeatIOException io) {
+                    continue;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public int scanner() throws IOException
+    {
+        CustomerRegistry customers = new CustomerRegistry();
+        ScannerLoader.loadCustomers(this.customersFile, customers);
+        return ScannerLoader.loadSeats(this.seatsFile, this.layout, customers);
+    }
+}
@@ -0,0 +1,102 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.exceptions.ConcertIOException;
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.RecordReader;
+import concerthallsystem.main.Seat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The PersistenceBenchmark class measures reading a concert back from its files,
+ * which covers parsing its line of the concert list, its customers and its booked
+ * seats, and saving a concert after a change that leaves both of its files out of date.
+ * Run with -jvmArgs -Dconcerthallsystem.snapshots=true to measure the binary snapshots instead.
+ *
+ * @author Daniel Black
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark
+{
+    private static final String CONCERT_LIST = "Concert_list.txt";
+
+    @Param({"90", "10000", "100000"})
+    private int hallSize;
+
+    @Param({"10", "1000"})
+    private int customerCount;
+
+    private File directory;
+    private File concertList;
+    private Concert concert;
+    private Seat changedSeat;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        this.directory = ConcertFixture.createDirectory();
+        HallLayout layout = ConcertFixture.createLayout(this.directory, this.hallSize);
+        this.concert = ConcertFixture.createConcert(layout, this.customerCount);
+        if(!this.concert.save(this.directory.getPath())) {
+            throw new IOException("Could not save the benchmark concert");
+        }
+        this.concertList = new File(this.directory, CONCERT_LIST);
+        try(PrintWriter output = new PrintWriter(this.concertList)) {
+            output.println(this.concert.getListLine());
+        }
+        this.changedSeat = this.concert.getSeats()[1];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        this.concert.unload();
+        ConcertFixture.delete(this.directory);
+    }
+
+    @Benchmark
+    public int load() throws IOException, ConcertIOException
+    {
+        try(RecordReader input = new RecordReader(this.concertList)) {
+            input.nextLine();
+            Concert loaded = Concert.load(input, this.directory.getPath(), input.getLineNumber());
+            loaded.loadBookings();
+            int booked = loaded.getBookedSeatCount();
+            loaded.unload();
+            return booked;
+        }
+    }
+
+    //Booking and un-booking a seat for a new customer changes nothing, but
+    //leaves both the customers and the seats file to be written again
+    @Benchmark
+    public boolean save()
+    {
+        this.concert.bookSeat(this.changedSeat, "Benchmark Customer");
+        this.concert.unBookSeat(this.changedSeat);
+        return this.concert.save(this.directory.getPath());
+    }
+}
@@ -0,0 +1,107 @@
+package concerthallsystem.benchmarks;
+
+import concerthallsystem.main.Customer;
+import concerthallsystem.main.CustomerRegistry;
+import concerthallsystem.main.HallLayout;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+/**
+ * The ScannerLoader class is the java.util.Scanner based reading of Customers.txt
+ * and Booked_seats.txt that the program used before main.RecordReader, kept only
+ * so ParserBenchmark has a baseline to compare against. The line parsing is as it
+ * was, a regex matched for every token of a customer line and a split of every seat
+ * line, and each parsed line is then resolved the same way the program does now.
+ * Customers are registered without their entitlements, which only the program
+ * itself can restore, but the entitlements are still parsed.
+ *
+ * @author Daniel Black
+ */
+
+final class ScannerLoader
+{
+    private ScannerLoader()
+    {
+    }
+
+    //Reads every customer into the registry, returns the number read
+    static int loadCustomers(File customersFile, CustomerRegistry customers) throws IOException
+    {
+        int loaded = 0;
+        try(Scanner customerInput = new Scanner(customersFile)) {
+            while(customerInput.hasNextLine()) {
+                Customer customer = loadCustomer(customerInput);
+                if(customer != null && customers.add(customer)) {
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static Customer loadCustomer(Scanner input)
+    {
+        String name = null;
+        Pattern boolPattern = Pattern.compile("true|false|TRUE|FALSE");
+        try {
+            while(input.hasNext()) {
+                if(!input.hasNext(boolPattern)) {
+                    if(name != null) {
+                        name += " " + input.next();
+                    }
+                    else {
+                        name = input.next();
+                    }
+                }
+                else {
+                    if(name != null && name.length() > 0) {
+                        break;
+                    }
+                    else {
+                        throw new InputMismatchException();
+                    }
+                }
+            }
+            input.nextBoolean();
+            input.nextBoolean();
+        }
+        catch(NoSuchElementException ex) {
+            return null;
+        }
+        finally {
+            if(input.hasNextLine()) {
+                input.nextLine();
+            }
+        }
+        return new Customer(name);
+    }
+
+    //Reads every booked seat, returns the number whose seat and customer were both found
+    static int loadSeats(File seatsFile, HallLayout layout, CustomerRegistry customers) throws IOException
+    {
+        int loaded = 0;
+        try(Scanner seatInput = new Scanner(seatsFile)) {
+            while(seatInput.hasNextLine()) {
+                try {
+                    String[] fields = seatInput.nextLine().trim().split("\\s+", 3);
+                    if(fields.length < 3) {
+                        continue;
+                    }
+                    int seatIndex = layout.getSeatIndex(fields[0].toUpperCase(), Integer.parseInt(fields[1]));
+                    if(seatIndex >= 0 && customers.find(fields[2]) != null) {
+                        loaded++;
+                    }
+                }
+                catch(NumberFormatException ex) {
+                    continue;
+                }
+            }
+        }
+        return loaded;
+    }
+}
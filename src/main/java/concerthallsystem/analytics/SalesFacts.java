@@ -0,0 +1,546 @@
+package concerthallsystem.analytics;
+
+import concerthallsystem.main.BookingListener;
+import concerthallsystem.main.Concert;
+import concerthallsystem.main.CustomerRegistry;
+import concerthallsystem.main.HallLayout;
+import concerthallsystem.main.Seat;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * The SalesFacts class is a table of every booked seat across all the loaded concerts,
+ * kept as one array per column (concert, month, section, seat, price and customer)
+ * rather than as objects, so questions about the whole catalog, such as revenue by
+ * month, how full each section is or who the top customers are, can be answered by
+ * scanning a few arrays in parallel.
+ * It is given to each concert as its main.BookingListener, so it fills as concerts
+ * are loaded and is kept up to date by every booking and price change. Rows of a
+ * concert stay in the table when the concert is unloaded to free memory, but the
+ * index from its seats to their rows is dropped, and built again when it is loaded.
+ * A booking never waits for the table. Each change is put on a lock free queue while
+ * the concerts section lock is held, so the changes of a seat queue in the order they
+ * were made, and a background thread applies them under the tables lock. A query
+ * applies whatever is still queued before it reads, so it sees every change made before it.
+ * Concerts, sections and customers are stored as small ints, the names they stand
+ * for are kept once each in lookup tables. A row points at the price of its concerts
+ * section in pence, so a price change is one write however many seats are booked.
+ * A removed row is filled with the last row, so the table never has gaps.
+ *
+ * @author Daniel Black
+ */
+
+public class SalesFacts implements BookingListener
+{
+    private static final int INITIAL_ROWS = 1024;
+    private static final ExecutorService APPLIER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "sales-facts-applier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+
+    //The columns, one entry per booked seat
+    private int[] concertColumn = new int[INITIAL_ROWS];
+    private int[] monthColumn = new int[INITIAL_ROWS];
+    private int[] sectionColumn = new int[INITIAL_ROWS];
+    private int[] seatColumn = new int[INITIAL_ROWS];
+    private int[] priceColumn = new int[INITIAL_ROWS];
+    private int[] customerColumn = new int[INITIAL_ROWS];
+    private int rows = 0;
+
+    //Per concert id, the row of each booked seat, or -1, which is null while the
+    //concert is unloaded, the section ids of its layout and where the prices of
+    //its sections start in the price table
+    private final Map<Concert, Integer> concertIds = new IdentityHashMap<>();
+    private final List<int[]> rowOfSeat = new ArrayList<>();
+    private final List<int[]> concertSections = new ArrayList<>();
+    private final List<Integer> firstPrice = new ArrayList<>();
+
+    //The price in pence of every section of every concert, as the concert rounded it
+    private long[] prices = new long[64];
+    private int nPrices = 0;
+
+    private final Map<String, Integer> sectionIds = new HashMap<>();
+    private final List<String> sectionNames = new ArrayList<>();
+    private long[] sectionCapacity = new long[8];
+
+    private final Map<String, Integer> customerIds = new HashMap<>();
+    private final List<String> customerNames = new ArrayList<>();
+
+    //Replaces the rows of the concert with its booked seats
+    @Override
+    public void bookingsLoaded(Concert concert, List<Seat> bookedSeats)
+    {
+        int[] seats = new int[bookedSeats.size()];
+        String[] names = new String[seats.length];
+        for(int i = 0; i < seats.length; i++) {
+            seats[i] = bookedSeats.get(i).getIndex();
+            names[i] = concert.getCustomer(bookedSeats.get(i)).getName();
+        }
+        this.queue(new Change(Change.LOADED, concert, seats, names, sectionPence(concert)));
+    }
+
+    @Override
+    public void seatBooked(Concert concert, Seat seat)
+    {
+        this.queue(new Change(
+                Change.BOOKED, concert, new int[] {seat.getIndex()},
+                new String[] {concert.getCustomer(seat).getName()}, null
+        ));
+    }
+
+    @Override
+    public void seatUnBooked(Concert concert, Seat seat)
+    {
+        this.queue(new Change(Change.UNBOOKED, concert, new int[] {seat.getIndex()}, null, null));
+    }
+
+    //Bookings are charged the current price of their section, as they are in the
+    //concerts report, so the rows of the section take on the new price
+    @Override
+    public void sectionPriceChanged(Concert concert, int section, double price)
+    {
+        this.queue(new Change(
+                Change.PRICED, concert, new int[] {section}, null, new long[] {concert.getSectionPence(section)}
+        ));
+    }
+
+    @Override
+    public void bookingsUnloaded(Concert concert)
+    {
+        this.queue(new Change(Change.UNLOADED, concert, null, null, null));
+    }
+
+    //Drops the rows of a concert that has been removed from the catalog
+    public void removeConcert(Concert concert)
+    {
+        this.queue(new Change(Change.REMOVED, concert, null, null, null));
+    }
+
+    //Returns the takings of every month that has a booking, in pence
+    public SortedMap<YearMonth, Long> getRevenueByMonth()
+    {
+        this.applyChanges();
+        this.lock.readLock().lock();
+        try {
+            int[] months = this.monthColumn;
+            int[] priceOf = this.priceColumn;
+            long[] prices = this.prices;
+            int first = Integer.MAX_VALUE;
+            int last = Integer.MIN_VALUE;
+            for(int row = 0; row < this.rows; row++) {
+                first = Math.min(first, months[row]);
+                last = Math.max(last, months[row]);
+            }
+            SortedMap<YearMonth, Long> revenue = new TreeMap<>();
+            if(this.rows == 0) {
+                return revenue;
+            }
+            int firstMonth = first;
+            int nMonths = last - first + 1;
+            long[] totals = IntStream.range(0, this.rows).parallel().collect(
+                    () -> new long[nMonths],
+                    (sums, row) -> sums[months[row] - firstMonth] += prices[priceOf[row]],
+                    SalesFacts::addAll
+            );
+            for(int i = 0; i < nMonths; i++) {
+                if(totals[i] != 0) {
+                    int month = firstMonth + i;
+                    revenue.put(YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1), totals[i]);
+                }
+            }
+            return revenue;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    //Returns, for every section name, the share of its seats across all loaded
+    //concerts that are booked, from 0 to 1
+    public Map<String, Double> getOccupancyBySection()
+    {
+        this.applyChanges();
+        this.lock.readLock().lock();
+        try {
+            int[] sections = this.sectionColumn;
+            int nSections = this.sectionNames.size();
+            long[] booked = IntStream.range(0, this.rows).parallel().collect(
+                    () -> new long[nSections],
+                    (counts, row) -> counts[sections[row]]++,
+                    SalesFacts::addAll
+            );
+            Map<String, Double> occupancy = new LinkedHashMap<>();
+            for(int i = 0; i < nSections; i++) {
+                if(this.sectionCapacity[i] > 0) {
+                    occupancy.put(this.sectionNames.get(i), (double) booked[i] / this.sectionCapacity[i]);
+                }
+            }
+            return occupancy;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    //Returns up to count customers who have spent the most across all concerts,
+    //with what they spent in pence, the biggest spender first
+    public Map<String, Long> getTopCustomers(int count)
+    {
+        this.applyChanges();
+        this.lock.readLock().lock();
+        try {
+            int[] customers = this.customerColumn;
+            int[] priceOf = this.priceColumn;
+            long[] prices = this.prices;
+            int nCustomers = this.customerNames.size();
+            long[] spent = IntStream.range(0, this.rows).parallel().collect(
+                    () -> new long[nCustomers],
+                    (sums, row) -> sums[customers[row]] += prices[priceOf[row]],
+                    SalesFacts::addAll
+            );
+
+            //Keeps the biggest spenders seen so far, with the smallest of them on top
+            PriorityQueue<Integer> top = new PriorityQueue<>(
+                    Math.max(1, count), (a, b) -> Long.compare(spent[a], spent[b])
+            );
+            for(int id = 0; id < nCustomers && count > 0; id++) {
+                if(spent[id] == 0) {
+                    continue;
+                }
+                if(top.size() < count) {
+                    top.add(id);
+                }
+                else if(spent[id] > spent[top.peek()]) {
+                    top.poll();
+                    top.add(id);
+                }
+            }
+            Integer[] ranked = top.toArray(new Integer[0]);
+            Arrays.sort(ranked, (a, b) -> Long.compare(spent[b], spent[a]));
+            Map<String, Long> topCustomers = new LinkedHashMap<>();
+            for(int id : ranked) {
+                topCustomers.put(this.customerNames.get(id), spent[id]);
+            }
+            return topCustomers;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int size()
+    {
+        this.applyChanges();
+        this.lock.readLock().lock();
+        try {
+            return this.rows;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private static void addAll(long[] sums, long[] more)
+    {
+        for(int i = 0; i < sums.length; i++) {
+            sums[i] += more[i];
+        }
+    }
+
+    //Puts a change on the queue, and has the background thread apply
+    //the queue unless it has already been asked to and not yet started
+    private void queue(Change change)
+    {
+        this.changes.add(change);
+        if(this.applyScheduled.compareAndSet(false, true)) {
+            APPLIER.execute(() -> {
+                this.applyScheduled.set(false);
+                this.applyChanges();
+            });
+        }
+    }
+
+    //Applies every queued change, in the order they were queued
+    private void applyChanges()
+    {
+        if(this.changes.isEmpty()) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            Change change;
+            while((change = this.changes.poll()) != null) {
+                this.apply(change);
+            }
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Change change)
+    {
+        Concert concert = change.concert;
+        Integer knownId = this.concertIds.get(concert);
+        switch(change.kind) {
+            case Change.LOADED: {
+                int concertId = this.getConcertId(concert, change.pence);
+                this.removeRows(concertId);
+                if(this.rowOfSeat.get(concertId) == null) {
+                    this.rowOfSeat.set(concertId, newRowsOfSeats(concert));
+                }
+                System.arraycopy(change.pence, 0, this.prices, this.firstPrice.get(concertId), change.pence.length);
+                for(int i = 0; i < change.seats.length; i++) {
+                    this.addRow(concert, concertId, change.seats[i], change.names[i]);
+                }
+                break;
+            }
+            case Change.BOOKED: {
+                int concertId = this.getConcertId(concert, null);
+                if(this.getRowsOfSeats(concert, concertId)[change.seats[0]] < 0) {
+                    this.addRow(concert, concertId, change.seats[0], change.names[0]);
+                }
+                break;
+            }
+            case Change.UNBOOKED:
+                if(knownId != null) {
+                    int row = this.getRowsOfSeats(concert, knownId)[change.seats[0]];
+                    if(row >= 0) {
+                        this.removeRow(row);
+                    }
+                }
+                break;
+            case Change.PRICED:
+                if(knownId != null) {
+                    this.prices[this.firstPrice.get(knownId) + change.seats[0]] = change.pence[0];
+                }
+                break;
+            case Change.UNLOADED:
+                if(knownId != null) {
+                    this.rowOfSeat.set(knownId, null);
+                }
+                break;
+            case Change.REMOVED:
+                if(knownId != null) {
+                    this.concertIds.remove(concert);
+                    this.removeRows(knownId);
+                    int[] sections = this.concertSections.get(knownId);
+                    HallLayout layout = concert.getLayout();
+                    for(int section = 0; section < sections.length; section++) {
+                        this.sectionCapacity[sections[section]] -= layout.getSectionSize(section);
+                    }
+                    this.rowOfSeat.set(knownId, null);
+                    this.concertSections.set(knownId, null);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown change " + change.kind);
+        }
+    }
+
+    private static long[] sectionPence(Concert concert)
+    {
+        long[] pence = new long[concert.getLayout().getSectionCount()];
+        for(int section = 0; section < pence.length; section++) {
+            pence[section] = concert.getSectionPence(section);
+        }
+        return pence;
+    }
+
+    //Gives a concert seen for the first time an id, and room for its section
+    //prices, which are the given ones or else the concerts current ones
+    private int getConcertId(Concert concert, long[] pence)
+    {
+        Integer concertId = this.concertIds.get(concert);
+        if(concertId != null) {
+            return concertId;
+        }
+        HallLayout layout = concert.getLayout();
+        int[] sections = new int[layout.getSectionCount()];
+        for(int section = 0; section < sections.length; section++) {
+            sections[section] = this.getSectionId(layout.getSectionName(section));
+            this.sectionCapacity[sections[section]] += layout.getSectionSize(section);
+        }
+        if(this.nPrices + sections.length > this.prices.length) {
+            this.prices = Arrays.copyOf(this.prices, Math.max(this.prices.length * 2, this.nPrices + sections.length));
+        }
+        System.arraycopy(pence != null ? pence : sectionPence(concert), 0, this.prices, this.nPrices, sections.length);
+        this.firstPrice.add(this.nPrices);
+        this.nPrices += sections.length;
+
+        this.rowOfSeat.add(newRowsOfSeats(concert));
+        this.concertSections.add(sections);
+        concertId = this.rowOfSeat.size() - 1;
+        this.concertIds.put(concert, concertId);
+        return concertId;
+    }
+
+    private static int[] newRowsOfSeats(Concert concert)
+    {
+        int[] rowsOfSeats = new int[concert.getLayout().getTotalSeats()];
+        Arrays.fill(rowsOfSeats, -1);
+        return rowsOfSeats;
+    }
+
+    //Returns the row of each seat of the concert, building it from
+    //the table if the index was dropped when the concert was unloaded
+    private int[] getRowsOfSeats(Concert concert, int concertId)
+    {
+        int[] rowsOfSeats = this.rowOfSeat.get(concertId);
+        if(rowsOfSeats == null) {
+            rowsOfSeats = newRowsOfSeats(concert);
+            for(int row = 0; row < this.rows; row++) {
+                if(this.concertColumn[row] == concertId) {
+                    rowsOfSeats[this.seatColumn[row]] = row;
+                }
+            }
+            this.rowOfSeat.set(concertId, rowsOfSeats);
+        }
+        return rowsOfSeats;
+    }
+
+    private int getSectionId(String sectionName)
+    {
+        Integer sectionId = this.sectionIds.get(sectionName);
+        if(sectionId == null) {
+            sectionId = this.sectionNames.size();
+            this.sectionIds.put(sectionName, sectionId);
+            this.sectionNames.add(sectionName);
+            if(sectionId == this.sectionCapacity.length) {
+                this.sectionCapacity = Arrays.copyOf(this.sectionCapacity, sectionId * 2);
+            }
+        }
+        return sectionId;
+    }
+
+    //Customers with the same name are the same customer in every concert,
+    //they are shown by the first spelling of their name that was booked
+    private int getCustomerId(String name)
+    {
+        String key = CustomerRegistry.normalize(name);
+        Integer customerId = this.customerIds.get(key);
+        if(customerId == null) {
+            customerId = this.customerNames.size();
+            this.customerIds.put(key, customerId);
+            this.customerNames.add(name);
+        }
+        return customerId;
+    }
+
+    private void addRow(Concert concert, int concertId, int seatIndex, String customerName)
+    {
+        if(this.rows == this.concertColumn.length) {
+            int capacity = this.rows * 2;
+            this.concertColumn = Arrays.copyOf(this.concertColumn, capacity);
+            this.monthColumn = Arrays.copyOf(this.monthColumn, capacity);
+            this.sectionColumn = Arrays.copyOf(this.sectionColumn, capacity);
+            this.seatColumn = Arrays.copyOf(this.seatColumn, capacity);
+            this.priceColumn = Arrays.copyOf(this.priceColumn, capacity);
+            this.customerColumn = Arrays.copyOf(this.customerColumn, capacity);
+        }
+        int section = concert.getLayout().getSectionOf(seatIndex);
+        LocalDate date = concert.getKey().getDate();
+
+        int row = this.rows++;
+        this.concertColumn[row] = concertId;
+        this.monthColumn[row] = date.getYear() * 12 + date.getMonthValue() - 1;
+        this.sectionColumn[row] = this.concertSections.get(concertId)[section];
+        this.seatColumn[row] = seatIndex;
+        this.priceColumn[row] = this.firstPrice.get(concertId) + section;
+        this.customerColumn[row] = this.getCustomerId(customerName);
+        this.setRowOfSeat(concertId, seatIndex, row);
+    }
+
+    //Indexes are only kept for loaded concerts
+    private void setRowOfSeat(int concertId, int seatIndex, int row)
+    {
+        int[] rowsOfSeats = this.rowOfSeat.get(concertId);
+        if(rowsOfSeats != null) {
+            rowsOfSeats[seatIndex] = row;
+        }
+    }
+
+    //Moves the last row into the place of the removed one
+    private void removeRow(int row)
+    {
+        int last = --this.rows;
+        this.setRowOfSeat(this.concertColumn[row], this.seatColumn[row], -1);
+        if(row != last) {
+            this.concertColumn[row] = this.concertColumn[last];
+            this.monthColumn[row] = this.monthColumn[last];
+            this.sectionColumn[row] = this.sectionColumn[last];
+            this.seatColumn[row] = this.seatColumn[last];
+            this.priceColumn[row] = this.priceColumn[last];
+            this.customerColumn[row] = this.customerColumn[last];
+            this.setRowOfSeat(this.concertColumn[row], this.seatColumn[row], row);
+        }
+    }
+
+    private void removeRows(int concertId)
+    {
+        int row = 0;
+        while(row < this.rows) {
+            if(this.concertColumn[row] == concertId) {
+                this.removeRow(row);
+            }
+            else {
+                row++;
+            }
+        }
+    }
+
+    /**
+     * A booking, un-booking, price change, load, unload or removal of a concert, waiting to
+     * be applied to the table. It holds what the concert looked like when it was made,
+     * since the seat may have been booked by someone else by the time it is applied.
+     */
+    private static final class Change
+    {
+        static final int LOADED = 0;
+        static final int BOOKED = 1;
+        static final int UNBOOKED = 2;
+        static final int PRICED = 3;
+        static final int REMOVED = 4;
+        static final int UNLOADED = 5;
+
+        final int kind;
+        final Concert concert;
+        //The seat indexes, or for a price change the section
+        final int[] seats;
+        final String[] names;
+        final long[] pence;
+
+        Change(int kind, Concert concert, int[] seats, String[] names, long[] pence)
+        {
+            this.kind = kind;
+            this.concert = concert;
+            this.seats = seats;
+            this.names = names;
+            this.pence = pence;
+        }
+    }
+}
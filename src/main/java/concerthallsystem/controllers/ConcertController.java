@@ -1,19 +1,44 @@
 package concerthallsystem.controllers;
 
 import concerthallsystem.main.Concert;
+import concerthallsystem.main.ConcertCatalog;
+import concerthallsystem.main.ConcertWriter;
 import concerthallsystem.main.DialogPopup;
+import concerthallsystem.main.RecordReader;
+import concerthallsystem.main.SeatChangePublisher;
+import concerthallsystem.main.WaitingRoom;
 import concerthallsystem.exceptions.ConcertIOException;
+import concerthallsystem.analytics.SalesFacts;
 import concerthallsystem.exceptions.ConcertAlreadyExistsException;
+import concerthallsystem.metrics.BookingMetrics;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * This is the ConcertController class that manages and holds each concert in the system.
  * This class is responsible for loading and saving concerts from/to file.
+ * At start up only the concert list is read, each concerts customers and seats are
+ * read in the first time the concert is opened, and a bounded least recently used
+ * set of open concerts decides which concerts are unloaded again to save memory.
+ * Starting the program with -Dconcerthallsystem.parallelLoad=true instead reads every
+ * concert at start up, spread over a fork/join pool, so all load errors are reported at once.
+ * Saving only rewrites the concert list when a concert has been added or replaced, or
+ * a concerts prices have changed, and each concert keeps its line of the list ready to write.
+ * The files are written by the main.ConcertWriter in the background, so the user interface
+ * is told how a save went through the CompletableFuture it gets back.
  * The class also manages and reports errors if their is a problem when trying to either
  * load or save a concert to file, so this class is the main area where error checking will be
  * carried out.
@@ -23,18 +48,36 @@ import java.util.Scanner;
 
 public class ConcertController
 {
-    private List<Concert> concerts;
+    private ConcertCatalog concerts;
     private Concert currentConcert;
     private List<ConcertIOException> concertExceptions;
     private List<Concert> duplicatedConcerts;
+    private final LinkedHashMap<Concert, Boolean> residentConcerts;
+    private final Set<Concert> changedListLines;
+    private final SalesFacts salesFacts;
+    private final SeatChangePublisher seatChanges;
+    private final WaitingRoom waitingRoom;
+    private int savedCatalogModCount;
+    private volatile boolean concertListFailed;
+    private static final int MAX_RESIDENT_CONCERTS = 16;
+    private static final boolean PARALLEL_LOAD = Boolean.getBoolean("concerthallsystem.parallelLoad");
+    private static final int ADMISSION_LIMIT = Integer.getInteger(
+            "concerthallsystem.admissionLimit", Runtime.getRuntime().availableProcessors()
+    );
+    private static final int WAITING_ROOM_SIZE = Integer.getInteger("concerthallsystem.waitingRoomSize", 10000);
     private static final String MAIN_DIRECTORY = "Concerts";
     private static final String CONCERT_LIST = "Concert_list.txt";
 
     public ConcertController()
     {
-        this.concerts = new ArrayList<>();
+        this.concerts = new ConcertCatalog();
         this.concertExceptions = new ArrayList<>();
         this.duplicatedConcerts = new ArrayList<>();
+        this.residentConcerts = new LinkedHashMap<>(MAX_RESIDENT_CONCERTS, 0.75f, true);
+        this.changedListLines = new HashSet<>();
+        this.salesFacts = new SalesFacts();
+        this.seatChanges = new SeatChangePublisher();
+        this.waitingRoom = new WaitingRoom(ADMISSION_LIMIT, WAITING_ROOM_SIZE);
         try {
             this.loadConcerts();
         }
@@ -42,6 +85,9 @@ public class ConcertController
             File directory = new File(MAIN_DIRECTORY);
             directory.mkdir();
         }
+        catch(IOException io) {
+            System.out.println(io.getMessage());
+        }
     }
 
     private void checkForDuplicatedConcerts() throws ConcertAlreadyExistsException
@@ -62,7 +108,7 @@ public class ConcertController
     {
         //See if the loaded concert already exists,
         //if not then just add it to the concert list
-        Concert actual = this.findConcert(concert);
+        Concert actual = this.concerts.find(concert.getKey());
         if(actual != null) {
             if(this.duplicatedConcerts.contains(actual)) {
                 this.duplicatedConcerts.add(concert);
@@ -75,16 +121,23 @@ public class ConcertController
         return false;
     }
 
-    private void loadConcerts() throws FileNotFoundException
+    private void loadConcerts() throws IOException
     {
-        Scanner concertInput = new Scanner(new File(MAIN_DIRECTORY + File.separator + CONCERT_LIST));
+        File concertList = new File(MAIN_DIRECTORY + File.separator + CONCERT_LIST);
+        if(!concertList.exists()) {
+            throw new FileNotFoundException(concertList.toString());
+        }
+        RecordReader concertInput = new RecordReader(concertList);
 
-        int concertLineNum = 1;
         Concert temp = null;
+        List<Concert> listOrder = new ArrayList<>();
 
-        while(concertInput.hasNextLine()) {
+        while(concertInput.nextLine()) {
+            if(concertInput.isBlank()) {
+                continue;
+            }
             try {
-                temp = Concert.load(concertInput, MAIN_DIRECTORY, concertLineNum++);
+                temp = Concert.load(concertInput, MAIN_DIRECTORY, concertInput.getLineNumber());
             }
             catch(ConcertIOException e) {
                 this.concertExceptions.add(e);
@@ -93,69 +146,167 @@ public class ConcertController
                 if(temp != null) {
                     if(!this.concertAlreadyExists(temp)) {
                         this.concerts.add(temp);
+                        listOrder.add(temp);
                     }
                     temp = null;
                 }
             }
         }
         concertInput.close();
+        this.savedCatalogModCount = this.concerts.getModCount();
+        if(PARALLEL_LOAD) {
+            this.loadBookingsInParallel(listOrder);
+        }
         this.checkForErrors();
     }
 
-    public void saveCurrentConcert() throws FileNotFoundException
+    //Reads the customers and seats of every concert at the same time, on a pool
+    //sized for blocking file reads. The ordered stream keeps the errors in the
+    //order the concerts appear in the concert list, however the work is split
+    private void loadBookingsInParallel(List<Concert> listOrder)
     {
-        /**
-         * Need to save all Concerts to the Concert_list.txt file, so we
-         * firstly save the current concert, then append all the others to file
-         */
-        PrintWriter concertOutput = new PrintWriter(MAIN_DIRECTORY + File.separator + CONCERT_LIST);
-        concertOutput.printf("%s %.2f %.2f %.2f%n", this.currentConcert,
-                this.currentConcert.getSectionPrice(Concert.SEAT_SECTIONS[0]),
-                this.currentConcert.getSectionPrice(Concert.SEAT_SECTIONS[1]),
-                this.currentConcert.getSectionPrice(Concert.SEAT_SECTIONS[2])
-        );
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            List<ConcertIOException> errors = pool.submit(() -> listOrder.parallelStream()
+                    .map(concert -> {
+                        try {
+                            concert.addBookingListener(this.salesFacts);
+                            concert.addBookingListener(this.seatChanges);
+                            concert.loadBookings();
+                            return null;
+                        }
+                        catch(ConcertIOException e) {
+                            return e;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())
+            ).get();
+            this.concertExceptions.addAll(errors);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
 
-        for(Concert concert : this.concerts) {
-            if(!concert.equals(this.currentConcert)) {
-                concertOutput.printf("%s %.2f %.2f %.2f%n", concert,
-                        concert.getSectionPrice(Concert.SEAT_SECTIONS[0]),
-                        concert.getSectionPrice(Concert.SEAT_SECTIONS[1]),
-                        concert.getSectionPrice(Concert.SEAT_SECTIONS[2])
-                );
+        //Only the concerts at the end of the list stay loaded
+        for(Concert concert : listOrder) {
+            if(concert.isLoaded()) {
+                this.trackListLine(concert);
+                this.residentConcerts.put(concert, Boolean.TRUE);
+                this.evictIdleConcerts(concert);
             }
         }
+    }
 
-        if(this.currentConcert.save(MAIN_DIRECTORY)) {
-            System.out.printf(
-                    "Successfully saved concert %s%n", this.currentConcert
-            );
-        } else {
-            System.out.printf(
-                    "Failed to save concert %s%n", this.currentConcert
-            );
+    //Queues the current concert, and the concert list if it is out of date, to be
+    //written in the background. The result completes exceptionally, with the cause,
+    //if anything failed
+    public CompletableFuture<Boolean> saveCurrentConcert()
+    {
+        CompletableFuture<Boolean> listSaved = CompletableFuture.completedFuture(true);
+        this.trackListLine(this.currentConcert);
+        if(this.concertListFailed || this.concerts.getModCount() != this.savedCatalogModCount
+                || !this.changedListLines.isEmpty()) {
+            listSaved = this.saveConcertList();
         }
-        concertOutput.close();
+
+        Concert concert = this.currentConcert;
+        CompletableFuture<Boolean> concertSaved = ConcertWriter.save(concert, MAIN_DIRECTORY);
+        return listSaved.thenCombine(concertSaved, (list, bookings) -> list && bookings);
     }
 
-    public Concert findConcert(Concert concert)
+    //Queues the Concert_list.txt file to be replaced with one line per concert,
+    //the current concert first, followed by all the others
+    private CompletableFuture<Boolean> saveConcertList()
     {
-        int i = 0;
-        boolean foundConcert = false;
-        while (i < this.concerts.size() && !foundConcert) {
-            if(this.concerts.get(i).equals(concert)) {
-                foundConcert = true;
-            } else {
-                i++;
+        List<String> lines = new ArrayList<>(this.concerts.size());
+        lines.add(this.currentConcert.getListLine());
+        for(Concert concert : this.concerts) {
+            if(!concert.equals(this.currentConcert)) {
+                lines.add(concert.getListLine());
             }
         }
-        if(!foundConcert) {
-            return null;
+        for(Concert concert : this.changedListLines) {
+            concert.markListLineSaved();
         }
-        else {
-            return this.concerts.get(i);
+        this.changedListLines.clear();
+        this.savedCatalogModCount = this.concerts.getModCount();
+        this.concertListFailed = false;
+
+        return ConcertWriter.save(new File(MAIN_DIRECTORY + File.separator + CONCERT_LIST), lines).whenComplete((saved, failure) -> {
+            if(failure != null) {
+                this.concertListFailed = true;
+            }
+        });
+    }
+
+    //Remembers a concert whose prices have changed since the concert list was
+    //last written, so saving doesn't have to check every concert in the catalog
+    private void trackListLine(Concert concert)
+    {
+        if(concert != null && concert.isListLineChanged()) {
+            this.changedListLines.add(concert);
         }
     }
 
+    //Makes sure the concerts customers and seats are loaded, and marks it as
+    //the most recently used concert, unloading the least recently used concerts
+    //that have no unsaved changes if too many are loaded
+    public void openConcert(Concert concert) throws ConcertIOException
+    {
+        concert.addBookingListener(this.salesFacts);
+        concert.addBookingListener(this.seatChanges);
+        concert.loadBookings();
+        this.trackListLine(concert);
+        this.residentConcerts.put(concert, Boolean.TRUE);
+        this.evictIdleConcerts(concert);
+    }
+
+    //Forgets a concert that has been removed from the catalog, closing and deleting
+    //its journal before any concert that takes its place can open the same file
+    public void closeConcert(Concert concert)
+    {
+        this.residentConcerts.remove(concert);
+        concert.removeBookingListener(this.salesFacts);
+        concert.removeBookingListener(this.seatChanges);
+        this.salesFacts.removeConcert(concert);
+        concert.discard();
+        BookingMetrics.get().setResidentConcerts(this.residentConcerts.size());
+    }
+
+    private void evictIdleConcerts(Concert inUse)
+    {
+        Iterator<Concert> eldestFirst = this.residentConcerts.keySet().iterator();
+        while(this.residentConcerts.size() > MAX_RESIDENT_CONCERTS && eldestFirst.hasNext()) {
+            Concert concert = eldestFirst.next();
+            if(concert != inUse && concert != this.currentConcert && concert.unload()) {
+                eldestFirst.remove();
+            }
+        }
+        BookingMetrics.get().setResidentConcerts(this.residentConcerts.size());
+    }
+
+    public int getResidentConcertCount()
+    {
+        return this.residentConcerts.size();
+    }
+
+    public Concert findConcert(Concert concert)
+    {
+        return this.concerts.find(concert.getKey());
+    }
+
+    public Concert findConcert(String name, LocalDate date)
+    {
+        return this.concerts.find(name, date);
+    }
+
     private void checkForErrors()
     {
         //This is where concertExceptions is checked to see if we have caught any
@@ -186,13 +337,34 @@ public class ConcertController
         }
     }
 
-    public List<Concert> getConcertList()
+    //The bookings of every loaded concert, for questions about the whole catalog
+    public SalesFacts getSalesFacts()
+    {
+        return this.salesFacts;
+    }
+
+    //The bookings and price changes of every loaded concert, sent out in batches
+    public SeatChangePublisher getSeatChanges()
+    {
+        return this.seatChanges;
+    }
+
+    //The queue that every booking goes through, the clerks as well as any made from
+    //many threads at once, such as an on-sale, so the booking engine is never asked
+    //for more than it can keep up with
+    public WaitingRoom getWaitingRoom()
+    {
+        return this.waitingRoom;
+    }
+
+    public ConcertCatalog getCatalog()
     {
         return this.concerts;
     }
 
     public void setCurrentConcert(Concert concert)
     {
+        this.trackListLine(this.currentConcert);
         this.currentConcert = concert;
     }
 
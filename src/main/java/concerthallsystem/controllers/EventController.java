@@ -1,20 +1,22 @@
 package concerthallsystem.controllers;
 
 import concerthallsystem.main.Concert;
-import concerthallsystem.main.SeatEventHandler;
+import concerthallsystem.main.ConcertCatalog;
+import concerthallsystem.main.DialogPopup;
+import concerthallsystem.main.Seat;
+import concerthallsystem.main.SeatingPlanCanvas;
 import concerthallsystem.exceptions.ConcertAlreadyExistsException;
-import java.io.FileNotFoundException;
+import concerthallsystem.exceptions.ConcertIOException;
+import java.time.LocalDate;
+import java.util.List;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.scene.Cursor;
-import javafx.scene.Node;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
-import javafx.scene.layout.GridPane;
 
 /**
  * The EventController class responds to user action, such as a button press in
@@ -31,7 +33,7 @@ public class EventController
     private final ConcertController concertController;
 
     @FXML
-    private GridPane seatIcons;
+    private SeatingPlanCanvas seatingPlan;
     @FXML
     private TextField newConcertName;
     @FXML
@@ -39,6 +41,10 @@ public class EventController
     @FXML
     private ComboBox dropDownList;
     @FXML
+    private DatePicker fromDate;
+    @FXML
+    private DatePicker toDate;
+    @FXML
     private Label selectedConcertTitle;
 
     public EventController(SceneController controller)
@@ -47,6 +53,17 @@ public class EventController
         this.concertController = new ConcertController();
     }
 
+    //Called each time a view using this controller has been loaded, once
+    //the seating plan is loaded it is kept up to date with every booking
+    @FXML
+    private void initialize()
+    {
+        if(this.seatingPlan != null) {
+            this.seatingPlan.listenTo(this.concertController.getSeatChanges());
+            this.seatingPlan.setWaitingRoom(this.concertController.getWaitingRoom());
+        }
+    }
+
     public ConcertController getConcertController()
     {
         return this.concertController;
@@ -61,12 +78,40 @@ public class EventController
     @FXML
     private void goToSelectConcertScene(ActionEvent event)
     {
+        this.filterConcertList(event);
+        this.sceneController.setScene("SelectConcert");
+    }
+
+    //Lists the concerts between the dates picked, in date order. Either date
+    //can be left empty, so the list is open ended on that side, and dates
+    //picked the wrong way round are swapped
+    @FXML
+    private void filterConcertList(ActionEvent event)
+    {
+        LocalDate first = this.fromDate.getValue();
+        LocalDate last = this.toDate.getValue();
+        if(first != null && last != null && first.isAfter(last)) {
+            LocalDate swap = first;
+            first = last;
+            last = swap;
+        }
+        ConcertCatalog catalog = this.concertController.getCatalog();
+        Iterable<Concert> concerts;
+        if(last != null) {
+            concerts = catalog.between(first != null ? first : LocalDate.MIN, last);
+        }
+        else if(first != null) {
+            concerts = catalog.onOrAfter(first);
+        }
+        else {
+            concerts = catalog;
+        }
+
         ObservableList<String> concertList = FXCollections.observableArrayList();
-        for(Concert concert : this.concertController.getConcertList()) {
+        for(Concert concert : concerts) {
             concertList.add(concert.getName() + " | " + concert.getDate());
         }
         this.dropDownList.setItems(concertList);
-        this.sceneController.setScene("SelectConcert");
     }
 
     @FXML
@@ -74,6 +119,8 @@ public class EventController
     {
         if(this.sceneController.getCurrentScene().equals(this.sceneController.getAllScenes().get("SelectConcert"))) {
             this.dropDownList.getSelectionModel().clearSelection();
+            this.fromDate.setValue(null);
+            this.toDate.setValue(null);
             this.sceneController.setScene("MainMenu");
         }
         else if(this.sceneController.getCurrentScene().equals(this.sceneController.getAllScenes().get("CreateConcert"))) {
@@ -101,28 +148,29 @@ public class EventController
     private void createNewConcert(ActionEvent event)
     {
         String name = newConcertName.getText().trim();
-        String date = newConcertDate.getValue().toString();
-        Concert temp = new Concert(name, date);
+        LocalDate date = newConcertDate.getValue();
 
-        Concert actual = this.concertController.findConcert(temp);
+        Concert actual = this.concertController.findConcert(name, date);
         if(actual != null) {
             try {
                 throw new ConcertAlreadyExistsException(actual);
             }
             catch(ConcertAlreadyExistsException e) {
                 if(this.sceneController.displayConcertAlreadyExistsDialog(e.getMessage())) {
-                    this.concertController.getConcertList().remove(actual);
-                    this.concertController.getConcertList().add(temp);
+                    Concert temp = new Concert(name, date.toString());
+                    this.concertController.getCatalog().put(temp);
+                    this.concertController.closeConcert(actual);
                     this.concertController.setCurrentConcert(temp);
-                    this.concertController.getConcertList().sort(null);
+                    this.concertController.openConcert(temp);
                     this.goToSeatingPlanScene(temp.getName() + " | " + temp.getDate());
                 }
             }
         }
         else {
-            this.concertController.getConcertList().add(temp);
+            Concert temp = new Concert(name, date.toString());
+            this.concertController.getCatalog().add(temp);
             this.concertController.setCurrentConcert(temp);
-            this.concertController.getConcertList().sort(null);
+            this.concertController.openConcert(temp);
             this.goToSeatingPlanScene(temp.getName() + " | " + temp.getDate());
         }
         this.newConcertName.clear();
@@ -136,12 +184,19 @@ public class EventController
         int divider = selectedConcert.lastIndexOf("|");
         String name = selectedConcert.substring(0, divider-1);
         String date = selectedConcert.substring(divider+2);
-        Concert temp = new Concert(name, date);
 
-        Concert actual = this.concertController.findConcert(temp);
+        Concert actual = this.concertController.findConcert(name, LocalDate.parse(date));
         if(actual != null) {
-            this.concertController.setCurrentConcert(actual);
-            this.goToSeatingPlanScene(selectedConcert);
+            try {
+                this.concertController.openConcert(actual);
+                this.concertController.setCurrentConcert(actual);
+                this.goToSeatingPlanScene(selectedConcert);
+            }
+            catch(ConcertIOException e) {
+                DialogPopup.drawResultDialog(
+                        "Failed to load concert " + actual + "\n" + e.getMessage()
+                );
+            }
         }
         else {
             System.out.println("Error, couldn't find concert");
@@ -151,34 +206,40 @@ public class EventController
 
     private void goToSeatingPlanScene(String selectedConcert)
     {
-        ObservableList<Node> seatIcons = this.seatIcons.getChildren();
-        for(int i = 0; i < seatIcons.size(); i++) {
-            if(this.concertController.getCurrentConcert().getSeats()[i].getStatus()) {
-                seatIcons.get(i).setStyle("-fx-background-color: linear-gradient(#FF0000, #D10000);");
-            }
-            else {
-                switch(this.concertController.getCurrentConcert().getSeats()[i].getClass().getSimpleName()) {
-                    case "GoldSeat":
-                        seatIcons.get(i).setStyle("-fx-background-color: linear-gradient(#FFD700, #EDC800);");
-                        break;
-                    case "SilverSeat":
-                        seatIcons.get(i).setStyle("-fx-background-color: linear-gradient(#C0C0C0, #ABABAB);");
-                        break;
-                    default:
-                        seatIcons.get(i).setStyle("-fx-background-color: linear-gradient(#CD7F32, #B5702B);");
-                        break;
-                }
-            }
-            seatIcons.get(i).setCursor(Cursor.HAND);
-            seatIcons.get(i).setOnMouseClicked(new SeatEventHandler(
-                    this.concertController.getCurrentConcert(),
-                    this.concertController.getCurrentConcert().getSeats()[i], seatIcons.get(i))
-            );
-        }
+        this.seatingPlan.setConcert(this.concertController.getCurrentConcert());
         this.selectedConcertTitle.setText(selectedConcert);
         this.sceneController.setScene("SeatingPlan");
     }
 
+    @FXML
+    private void bookSelectedSeats(ActionEvent event)
+    {
+        List<Seat> seats = this.seatingPlan.getSelectedSeats();
+        if(seats.isEmpty()) {
+            DialogPopup.drawResultDialog("Hold Ctrl and click on free seats to select them");
+            return;
+        }
+        DialogPopup bookSeatsDialog = new DialogPopup();
+        bookSeatsDialog.drawBookSeatsDialog(
+                this.concertController.getCurrentConcert(), seats, this.concertController.getWaitingRoom()
+        );
+        this.seatingPlan.clearSelection();
+    }
+
+    //Finds the best free seats together for a party and selects them on the
+    //seating plan, then offers to book them as a group
+    @FXML
+    private void findSeats(ActionEvent event)
+    {
+        DialogPopup findSeatsDialog = new DialogPopup();
+        findSeatsDialog.setHeaderText("Find Seats Together | " + this.concertController.getCurrentConcert());
+        List<Seat> seats = findSeatsDialog.drawFindSeatsDialog(this.concertController.getCurrentConcert(), 1, 6);
+        if(!seats.isEmpty()) {
+            this.seatingPlan.selectSeats(seats);
+            this.bookSelectedSeats(event);
+        }
+    }
+
     @FXML
     private void obtainReport(ActionEvent event)
     {
@@ -214,15 +275,10 @@ public class EventController
     @FXML
     private void saveConcert(ActionEvent event)
     {
-        try {
-            this.concertController.saveCurrentConcert();
-            this.sceneController.displaySaveSuccessfulDialog(
-                    this.concertController.getCurrentConcert()
-            );
-        }
-        catch(FileNotFoundException e) {
-            System.out.println("Error when saving a concert to file");
-        }
+        this.sceneController.displaySaveResult(
+                this.concertController.getCurrentConcert(),
+                this.concertController.saveCurrentConcert()
+        );
     }
 }
 
@@ -3,8 +3,14 @@ package concerthallsystem.controllers;
 import concerthallsystem.main.Concert;
 import concerthallsystem.main.DialogPopup;
 import concerthallsystem.main.Main;
+import concerthallsystem.main.SeatChange;
+import concerthallsystem.main.SeatChangeSubscriber;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javafx.application.Platform;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
@@ -119,7 +125,21 @@ public class SceneController extends StackPane
     {
         DialogPopup reportDialog = new DialogPopup();
         reportDialog.setHeaderText("Full Report For Concert | " + concert);
-        reportDialog.drawReportDialog(concert.getReport(), 2, 7);
+        List<String> report = concert.getReport();
+        reportDialog.drawReportDialog(report, 2, report.size() / 2);
+
+        //The report stays open alongside the seating plan, so it is
+        //brought up to date whenever the concert changes
+        SeatChangeSubscriber subscriber = new SeatChangeSubscriber(changes -> {
+            for(SeatChange change : changes) {
+                if(change.getConcert() == concert) {
+                    reportDialog.updateReport(concert.getReport());
+                    return;
+                }
+            }
+        });
+        this.eventController.getConcertController().getSeatChanges().subscribe(subscriber);
+        reportDialog.setOnHidden(event -> subscriber.cancel());
         reportDialog.show();
     }
 
@@ -131,6 +151,24 @@ public class SceneController extends StackPane
         saveDialog.showAndWait();
     }
 
+    //Shows how a background save went once it has finished, back on the JavaFX thread.
+    //A save that failed with an exception rather than a false result is a failure too
+    public void displaySaveResult(Concert concert, CompletableFuture<Boolean> saved)
+    {
+        saved.whenComplete((success, failure) -> Platform.runLater(() -> {
+            if(failure == null && success) {
+                this.displaySaveSuccessfulDialog(concert);
+            }
+            else if(failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                DialogPopup.drawResultDialog("Failed to save concert " + concert + "\n" + cause.getMessage());
+            }
+            else {
+                DialogPopup.drawResultDialog("Failed to save concert " + concert);
+            }
+        }));
+    }
+
     public void displaySavePromptDialog(Concert concert)
     {
         DialogPopup savePromptDialog = new DialogPopup(this);
@@ -142,7 +180,7 @@ public class SceneController extends StackPane
     {
         DialogPopup queryDialog = new DialogPopup();
         queryDialog.setHeaderText("Customer List For | " + concert);
-        queryDialog.drawQueryCustomerDialog(concert, 1, 2);
+        queryDialog.drawQueryCustomerDialog(concert, 1, 3);
     }
 
     public void displayQuerySeatDialog(Concert concert)
@@ -0,0 +1,20 @@
+package concerthallsystem.exceptions;
+
+import java.io.IOException;
+
+/**
+ * This class is thrown when a booking, un-booking or price change has been made,
+ * but could not be written to the concerts booking journal on disk, so it would be
+ * lost if the program stopped before the concert is next saved
+ *
+ * @author Daniel Black
+ */
+
+public class JournalWriteException extends RuntimeException
+{
+    public JournalWriteException(String concertName, IOException cause)
+    {
+        super("The change was made, but could not be written to the journal of " + concertName
+                + ",\nsave the concert to keep it: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,18 @@
+package concerthallsystem.exceptions;
+
+import java.io.File;
+
+public class LayoutIOException extends RuntimeException
+{
+    public LayoutIOException(File layoutFile, int lineNum)
+    {
+        super("\t\tFailed to load layout row on line " + lineNum
+                + " ...in location " + layoutFile + "\n");
+    }
+
+    public LayoutIOException(File layoutFile, String reason)
+    {
+        super("\t\tFailed to load layout, " + reason
+                + " ...in location " + layoutFile + "\n");
+    }
+}
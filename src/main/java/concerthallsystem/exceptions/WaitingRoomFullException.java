@@ -0,0 +1,17 @@
+package concerthallsystem.exceptions;
+
+/**
+ * This class is thrown when a booking is turned away because the waiting
+ * room in front of the booking engine already has as many people queuing as it
+ * can hold, the caller should try again later rather than straight away
+ *
+ * @author Daniel Black
+ */
+
+public class WaitingRoomFullException extends RuntimeException
+{
+    public WaitingRoomFullException(int capacity)
+    {
+        super("The waiting room is full, " + capacity + " bookings are already queuing, try again later");
+    }
+}
@@ -0,0 +1,72 @@
+package concerthallsystem.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The AtomicFile class replaces a file in one step. The new contents are written
+ * to a temporary file next to it, flushed to disk, and then renamed over the
+ * original, so if the program stops part way through, the file holds either
+ * all of its old contents or all of its new contents, never half of each.
+ *
+ * @author Daniel Black
+ */
+
+public final class AtomicFile
+{
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFile()
+    {
+    }
+
+    public interface Contents
+    {
+        void writeTo(PrintWriter output) throws IOException;
+    }
+
+    //Writes the contents to a temporary file with the platform charset,
+    //then renames it over the target
+    public static void write(File target, Contents contents) throws IOException
+    {
+        File temp = getTempFile(target);
+        try(FileOutputStream stream = new FileOutputStream(temp)) {
+            PrintWriter output = new PrintWriter(new BufferedWriter(
+                    new OutputStreamWriter(stream, Charset.defaultCharset())
+            ));
+            contents.writeTo(output);
+            output.flush();
+            if(output.checkError()) {
+                throw new IOException("Failed to write " + temp);
+            }
+            stream.getFD().sync();
+        }
+        replace(temp, target);
+    }
+
+    public static File getTempFile(File target)
+    {
+        return new File(target.getPath() + TEMP_SUFFIX);
+    }
+
+    //Renames a fully written temporary file over the target, falling back to
+    //a plain replace on file systems that can't rename atomically
+    public static void replace(File temp, File target) throws IOException
+    {
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch(AtomicMoveNotSupportedException ex) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package concerthallsystem.main;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The BookingJournal class is an append only log of every change made to a concert
+ * since it was last saved, kept in the Journal.log file of the concerts directory.
+ * Each booking, un-booking and price change is written as one line, and is on disk
+ * before the change is reported as done, so no change is lost if the program stops.
+ * Flushing to disk is group committed: while one caller waits for the disk, others
+ * keep adding lines, and the next flush writes all of them with a single fsync.
+ * Every line gets a ticket, numbered in the order the lines were added. Once the
+ * concert has been saved, the journal is compacted by dropping the lines up to the
+ * ticket that was current when the saved copy of the concert was taken.
+ * If a write or flush to disk fails, the lines it held may or may not be on disk,
+ * so the journal is failed from then on: every later wait for a line throws, until
+ * a save has put everything up to the failure into the concerts files, and the
+ * journal is rewritten from the lines added since.
+ *
+ * The journal is written and read as UTF-8 whatever the platform charset, so a
+ * journal left by a crash replays the same names under any locale. The lines are:
+ *   B <seat index> <gold entitled> <silver entitled> <customer name>
+ *   U <seat index>
+ *   P <section index> <price>
+ *
+ * @author Daniel Black
+ */
+
+public class BookingJournal implements Closeable
+{
+    public static final String FILE_NAME = "Journal.log";
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    private final File journalFile;
+    private FileChannel channel;
+    private final Object appendLock = new Object();
+    private final Object commitLock = new Object();
+    private StringBuilder pending = new StringBuilder();
+    private long appended;
+    private volatile long durable;
+    private long compactedTo;
+    private int headerLines;
+    private IOException failure;
+    private long failedUpTo;
+
+    //Opens the journal for appending. existingLines is the number of lines
+    //replay() could read, anything after them is cut off so new lines are
+    //never appended to a line that was only partly written
+    public BookingJournal(File journalFile, int existingLines) throws IOException
+    {
+        this.journalFile = journalFile;
+        this.channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        this.channel.truncate(this.offsetAfterLines(existingLines));
+        this.channel.position(this.channel.size());
+        this.appended = existingLines;
+        this.durable = existingLines;
+    }
+
+    private long offsetAfterLines(int lines) throws IOException
+    {
+        if(lines == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long offset = 0;
+        int found = 0;
+        while(this.channel.read(buffer, offset) > 0) {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                offset++;
+                if(buffer.get() == '\n' && ++found == lines) {
+                    return offset;
+                }
+            }
+            buffer.clear();
+        }
+        return offset;
+    }
+
+    public static File getFile(File concertDirectory)
+    {
+        return new File(concertDirectory + File.separator + FILE_NAME);
+    }
+
+    public long logBooking(int seatIndex, Customer customer)
+    {
+        return this.append("B " + seatIndex + " " + customer.isGoldEntitled() + " "
+                + customer.isSilverEntitled() + " " + customer.getName());
+    }
+
+    public long logUnBooking(int seatIndex)
+    {
+        return this.append("U " + seatIndex);
+    }
+
+    public long logPrice(int section, double price)
+    {
+        return this.append(priceRecord(section, price));
+    }
+
+    public static String priceRecord(int section, double price)
+    {
+        return "P " + section + " " + price;
+    }
+
+    //Queues a line to be written, and returns the ticket to wait on with awaitDurable().
+    //Callers add lines while holding the lock that guards the change, so the journal
+    //records changes to the same seat in the order they happened
+    private long append(String record)
+    {
+        synchronized(this.appendLock) {
+            this.pending.append(record).append('\n');
+            return ++this.appended;
+        }
+    }
+
+    //The ticket of the last line added, a copy of the concert taken while no
+    //changes can be made includes every line up to and including this ticket
+    public long mark()
+    {
+        synchronized(this.appendLock) {
+            return this.appended;
+        }
+    }
+
+    //Waits until the line with the ticket is on disk, flushing it, and every
+    //line queued behind it, if no other caller is already doing so. Throws an
+    //IOException if the line can't be written, or the journal has already failed
+    public void awaitDurable(long ticket) throws IOException
+    {
+        if(this.durable >= ticket) {
+            return;
+        }
+        synchronized(this.commitLock) {
+            if(this.durable >= ticket) {
+                return;
+            }
+            this.checkNotFailed();
+            long upTo = this.flushPending();
+            this.force(upTo);
+            this.durable = upTo;
+        }
+    }
+
+    //Writes the queued lines to the channel, returning the ticket of the last
+    //of them, which are only durable once forced. Called holding the commit lock
+    private long flushPending() throws IOException
+    {
+        String batch;
+        long upTo;
+        synchronized(this.appendLock) {
+            batch = this.pending.toString();
+            this.pending = new StringBuilder();
+            upTo = this.appended;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(batch.getBytes(CHARSET));
+        try {
+            while(bytes.hasRemaining()) {
+                this.channel.write(bytes);
+            }
+        }
+        catch(IOException io) {
+            this.fail(io, upTo);
+            throw io;
+        }
+        return upTo;
+    }
+
+    //Flushes the channel to disk, after which the written lines up to the ticket
+    //can be counted on, though a failed flush may have lost any of them
+    private void force(long upTo) throws IOException
+    {
+        try {
+            this.channel.force(false);
+        }
+        catch(IOException io) {
+            this.fail(io, upTo);
+            throw io;
+        }
+    }
+
+    private void fail(IOException io, long upTo)
+    {
+        if(this.failure == null) {
+            this.failure = io;
+        }
+        this.failedUpTo = Math.max(this.failedUpTo, upTo);
+    }
+
+    private void checkNotFailed() throws IOException
+    {
+        if(this.failure != null) {
+            throw new IOException("Journal " + this.journalFile + " could not be written to: "
+                    + this.failure.getMessage(), this.failure);
+        }
+    }
+
+    //Whether a line may have been lost, in which case the concert must
+    //be saved before its changes since then can be counted on
+    public boolean hasFailed()
+    {
+        synchronized(this.commitLock) {
+            return this.failure != null;
+        }
+    }
+
+    //Drops every line up to and including the ticket, once the saved files hold
+    //their changes, and starts the journal with the header lines instead.
+    //The new journal is written beside the old one and renamed over it, so if
+    //the program stops part way through, one or the other is left whole
+    public void compact(long ticket, List<String> header) throws IOException
+    {
+        synchronized(this.commitLock) {
+            if(!this.channel.isOpen() || ticket <= this.compactedTo) {
+                return;
+            }
+            List<String> kept = new ArrayList<>(header);
+            long upTo;
+            if(this.failure == null) {
+                upTo = this.flushPending();
+                List<String> lines = Files.readAllLines(this.journalFile.toPath(), CHARSET);
+                int dropped = this.headerLines + (int) (ticket - this.compactedTo);
+                kept.addAll(lines.subList(Math.min(dropped, lines.size()), lines.size()));
+            }
+            else if(ticket >= this.failedUpTo) {
+                //What is in the file can't be trusted, but the saved files hold every
+                //line up to the ticket, and the lines after the failure are still queued
+                String[] queued;
+                synchronized(this.appendLock) {
+                    queued = this.pending.toString().split("\n", -1);
+                    this.pending = new StringBuilder();
+                    upTo = this.appended;
+                }
+                //Until the new journal is written, none of the drained lines are on disk
+                this.failedUpTo = upTo;
+                long firstQueued = upTo - (queued.length - 1) + 1;
+                for(int i = 0; i < queued.length - 1; i++) {
+                    if(firstQueued + i > ticket) {
+                        kept.add(queued[i]);
+                    }
+                }
+            }
+            else {
+                //Lines after the ticket were lost, the next save will hold them
+                return;
+            }
+
+            File temp = AtomicFile.getTempFile(this.journalFile);
+            try(FileChannel output = FileChannel.open(temp.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                StringBuilder text = new StringBuilder();
+                for(String line : kept) {
+                    text.append(line).append('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(CHARSET));
+                while(bytes.hasRemaining()) {
+                    output.write(bytes);
+                }
+                output.force(false);
+            }
+            this.channel.close();
+            AtomicFile.replace(temp, this.journalFile);
+            this.channel = FileChannel.open(this.journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.compactedTo = ticket;
+            this.headerLines = header.size();
+            this.failure = null;
+            this.durable = upTo;
+        }
+    }
+
+    //The number of changes in the journal since it was last compacted
+    public int size()
+    {
+        synchronized(this.appendLock) {
+            return (int) (this.appended - this.compactedTo);
+        }
+    }
+
+    public File getFile()
+    {
+        return this.journalFile;
+    }
+
+    //Writes out and flushes any lines still queued, unless the journal has
+    //failed, and closes the file
+    @Override
+    public void close() throws IOException
+    {
+        synchronized(this.commitLock) {
+            try {
+                if(this.failure == null && this.channel.isOpen()) {
+                    this.force(this.flushPending());
+                }
+            }
+            finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Replays the lines of a journal onto a concert. The last line may have been
+     * cut short if the program stopped while writing it, so replay stops at the
+     * first line that can't be read.
+     */
+    public interface Replay
+    {
+        void booked(int seatIndex, boolean goldEntitled, boolean silverEntitled, String name);
+
+        void unBooked(int seatIndex);
+
+        void priceChanged(int section, double price);
+    }
+
+    //Replays the journal file, and returns the number of whole lines read
+    //before the first line that couldn't be, which is where the journal ends
+    public static int replay(File journalFile, Replay target) throws IOException
+    {
+        if(!journalFile.canRead()) {
+            return 0;
+        }
+        int lines = 0;
+        try(RecordReader input = new RecordReader(journalFile, CHARSET)) {
+            while(input.nextLine()) {
+                if(!input.isLineTerminated()) {
+                    return lines;
+                }
+                if(input.isBlank()) {
+                    lines++;
+                    continue;
+                }
+                String type = input.nextToken();
+                int number;
+                boolean gold = false;
+                boolean silver = false;
+                double price = 0;
+                String name = null;
+                try {
+                    number = input.nextInt();
+                    if(type.equals("B")) {
+                        gold = input.nextBoolean();
+                        silver = input.nextBoolean();
+                        name = input.rest();
+                    }
+                    else if(type.equals("P")) {
+                        price = input.nextDouble();
+                    }
+                }
+                catch(NumberFormatException | NoSuchElementException ex) {
+                    return lines;
+                }
+
+                if(type.equals("B") && !name.isEmpty()) {
+                    target.booked(number, gold, silver, name);
+                }
+                else if(type.equals("U")) {
+                    target.unBooked(number);
+                }
+                else if(type.equals("P")) {
+                    target.priceChanged(number, price);
+                }
+                else {
+                    return lines;
+                }
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,42 @@
+package concerthallsystem.main;
+
+import java.util.List;
+
+/**
+ * The BookingListener interface is told about the bookings of a concert as they
+ * change, once it has been given to the concert with addBookingListener().
+ * Each call is made while the concert holds the lock of the seats section,
+ * or the locks of every section for bookingsLoaded(), so a listener sees the
+ * changes to a section in the order they were made. A listener may read the
+ * concert, but must not book seats or change prices from inside a call.
+ *
+ * @author Daniel Black
+ */
+
+public interface BookingListener
+{
+    //Called with every booked seat, whenever the concerts bookings are loaded
+    void bookingsLoaded(Concert concert, List<Seat> bookedSeats);
+
+    void seatBooked(Concert concert, Seat seat);
+
+    void seatUnBooked(Concert concert, Seat seat);
+
+    void sectionPriceChanged(Concert concert, int section, double price);
+
+    //Called when a free seat is held, a held seat that is then booked is
+    //passed to seatBooked(), and one that is given back to seatReleased()
+    default void seatHeld(Concert concert, Seat seat)
+    {
+    }
+
+    default void seatReleased(Concert concert, Seat seat)
+    {
+    }
+
+    //Called once the concerts bookings have been unloaded to free memory,
+    //bookingsLoaded() is called again if they are read back in
+    default void bookingsUnloaded(Concert concert)
+    {
+    }
+}
@@ -3,27 +3,35 @@ package concerthallsystem.main;
 import concerthallsystem.exceptions.ConcertIOException;
 import concerthallsystem.exceptions.CannotUnbookSeatException;
 import concerthallsystem.exceptions.CustomerIOException;
+import concerthallsystem.exceptions.JournalWriteException;
+import concerthallsystem.exceptions.LayoutIOException;
 import concerthallsystem.exceptions.SeatIOException;
+import concerthallsystem.metrics.BookingMetrics;
 
 import java.util.ArrayList;
-import java.util.Scanner;
-import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Objects;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The main.Concert class holds all the important information that can
  * be accessed through the MainGUI. Each concert, when created, automatically
- * populates the main.Seat object array with either gold, silver or bronze seats.
+ * populates the main.Seat object array with the seats of its main.HallLayout.
  * To access these seats through the GUI, methods can be called on a concert
  * to retrieve important information about each seat from that particular concert,
  * or more general information about the specific concert
- * Each concert also holds a list of customers, which in turn holds a list
+ * Each concert also holds a registry of customers, which in turn holds a list
  * of seats that they have booked so they can be recalled by the concert.
  *
  * @author Daniel Black
@@ -32,193 +40,641 @@ import java.util.regex.Pattern;
 public class Concert implements Comparable<Concert>
 {
     private Seat[] seats;
+    //Which seats are booked, so counting and walking over the
+    //booked seats never touches the free ones
+    private SeatOccupancy occupancy;
+    private FreeRunIndex freeRuns;
+    private SeatOccupancy heldSeats;
+    private SeatHold[] holds;
     private String name_;
     private String date_;
-    private int nBookedSeats_;
+    private ConcertKey key_;
+    private HallLayout layout_;
     private int linePosition;
-    private double silverSectionPrice_;
-    private double goldSectionPrice_;
-    private double bronzeSectionPrice_;
-    private boolean recentlyChanged = false;
-    private final List<Customer> customers;
-    public static final String[] SEAT_SECTIONS = {"Gold", "Silver", "Bronze"};
-    public static final String[] SEAT_ROWS = {"A","B","C","D","E","F","G","H","I"};
-    public static final int[] SEAT_NUMBERS = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
-    public static final int TOTAL_SEATS = SEAT_ROWS.length * SEAT_NUMBERS.length;
-    private static final DecimalFormat PRICE_FORMAT = new DecimalFormat("##0.00");
+    private double[] sectionPrices;
+    private long[] sectionPence;
+    private String[] sectionPriceLabels;
+    private volatile boolean recentlyChanged = false;
+    //Which files are out of date, so saving only rewrites those
+    private volatile boolean customersChanged = true;
+    private volatile boolean seatsChanged = true;
+    private volatile boolean listLineChanged = false;
+    private volatile String listLine;
+    private String mainDirectory_;
+    private CustomerRegistry customers;
+    //Seats are booked under the lock of their section, so clerks selling
+    //different sections of the same concert never wait on each other
+    private Object[] sectionLocks;
+    //Once the concert has been saved, every change is on disk in the journal
+    //before it returns, until the journal is folded back into the files
+    private volatile BookingJournal journal;
+    private volatile BookingListener[] listeners = new BookingListener[0];
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private static final int COMPACT_AFTER_RECORDS = 10000;
+    private static final BookingMetrics METRICS = BookingMetrics.get();
+    private static final TimerWheel HOLD_TIMER = new TimerWheel(100, "seat-hold-timer");
+    //Saving also writes a main.SnapshotFile, read instead of the text files while it is up to date
+    private static final boolean WRITE_SNAPSHOTS = Boolean.getBoolean("concerthallsystem.snapshots");
 
     public Concert(String name, String date)
+    {
+        this(name, date, HallLayout.DEFAULT);
+    }
+
+    public Concert(String name, String date, HallLayout layout)
     {
         this.name_ = name;
         this.date_ = date;
-        this.customers = new ArrayList<>();
+        this.key_ = new ConcertKey(name, LocalDate.parse(date));
+        this.layout_ = layout;
+        this.initializePrices(new double[layout.getSectionCount()]);
+        this.customers = new CustomerRegistry();
         this.initializeSeats();
     }
 
     private Concert()
     {
-        this.customers = new ArrayList<>();
     }
 
-    //This method creates instances of gold, silver and bronze seats
-    //for a concert, assigning them each a row and a number
-    //depending on their index position in the seats array
+    //This method creates the seats of every row in the concerts layout,
+    //assigning them each a row, a number and their index in the seats array.
+    //Gold, silver and bronze sections get their own seat types, as they come
+    //with entitlements, seats in any other section are plain seats
     private void initializeSeats()
     {
-        this.seats = new Seat[TOTAL_SEATS];
-        int seatIndex = 0;
-
-        //Go through every row in the concert, and add 10 seats to that row depending
-        //on the row e.g. rows 0 to 2 (A to C) will need 10 gold seats each, totaling to 30 seats
-        for(int i = 0; i < SEAT_ROWS.length; i++) {
-            if(i < 3) {
-                for(int j = 0; j < SEAT_NUMBERS.length; j++) {
-                    this.seats[seatIndex] = new GoldSeat(SEAT_ROWS[i], SEAT_NUMBERS[j]);
-                    this.seats[seatIndex].setPrice(this.goldSectionPrice_);
-                    seatIndex++;
-                }
+        HallLayout layout = this.layout_;
+        this.seats = new Seat[layout.getTotalSeats()];
+        this.customers = new CustomerRegistry();
+        this.occupancy = new SeatOccupancy(layout.getSectionSizes());
+        this.freeRuns = new FreeRunIndex(layout);
+        this.heldSeats = new SeatOccupancy(layout.getSectionSizes());
+        this.holds = new SeatHold[layout.getTotalSeats()];
+        this.sectionLocks = new Object[layout.getSectionCount()];
+        for(int i = 0; i < this.sectionLocks.length; i++) {
+            this.sectionLocks[i] = new Object();
+        }
+
+        for(int row = 0; row < layout.getRowCount(); row++) {
+            String rowLabel = layout.getRowLabel(row);
+            int section = layout.getRowSection(row);
+            int seatIndex = layout.getFirstSeatIndex(row);
+            for(int number = 1; number <= layout.getRowLength(row); number++) {
+                Seat seat = createSeat(layout.getSectionName(section), rowLabel, number);
+                seat.setIndex(seatIndex);
+                seat.setPrice(this.sectionPrices[section]);
+                this.seats[seatIndex++] = seat;
             }
-            else if(i < 6) {
-                for(int j = 0; j < SEAT_NUMBERS.length; j++) {
-                    this.seats[seatIndex] = new SilverSeat(SEAT_ROWS[i], SEAT_NUMBERS[j]);
-                    this.seats[seatIndex].setPrice(this.silverSectionPrice_);
-                    seatIndex++;
-                }
+        }
+    }
+
+    private void initializePrices(double[] prices)
+    {
+        this.sectionPrices = prices;
+        this.sectionPence = new long[prices.length];
+        this.sectionPriceLabels = new String[prices.length];
+        for(int section = 0; section < prices.length; section++) {
+            this.storeSectionPrice(section, prices[section]);
+        }
+    }
+
+    //Keeps the price of a section in whole pence, and as it is shown in the
+    //report, next to the price itself, so that neither has to be worked out
+    //again each time a report is asked for
+    private void storeSectionPrice(int section, double price)
+    {
+        long pence = toPence(price);
+        this.sectionPrices[section] = price;
+        this.sectionPence[section] = pence;
+        this.sectionPriceLabels[section] = formatPence(pence);
+    }
+
+    //Rounds a price to the nearest penny, going by its exact value as a double,
+    //the same way the prices were rounded when they were formatted to be stored
+    private static long toPence(double price)
+    {
+        return new BigDecimal(price).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+
+    //Formats an amount of pence as pounds, e.g. 1050 as £10.50
+    private static String formatPence(long pence)
+    {
+        long whole = Math.abs(pence);
+        StringBuilder label = new StringBuilder(12);
+        if(pence < 0) {
+            label.append('-');
+        }
+        label.append('£').append(whole / 100).append('.');
+        long fraction = whole % 100;
+        if(fraction < 10) {
+            label.append('0');
+        }
+        return label.append(fraction).toString();
+    }
+
+    private static Seat createSeat(String sectionName, String row, int number)
+    {
+        switch(sectionName) {
+            case "Gold":
+                return new GoldSeat(row, number);
+            case "Silver":
+                return new SilverSeat(row, number);
+            case "Bronze":
+                return new BronzeSeat(row, number);
+            default:
+                return new Seat(row, number);
+        }
+    }
+
+    //Saves the current concert along with its info, booked seats and customers, to file.
+    //The save is queued on the main.ConcertWriter like any other, and waited for.
+    //Returns false if it failed, the failure is counted in the metrics
+    public boolean save(String directory)
+    {
+        try {
+            return ConcertWriter.save(this, directory).join();
+        }
+        catch(CompletionException ex) {
+            return false;
+        }
+    }
+
+    //Takes a copy of the files that are out of date, marking them as up to date,
+    //for the main.ConcertWriter to write. Returns null if the concert isn't loaded,
+    //as then its files and journal already hold everything
+    synchronized ConcertState captureState(String directory, boolean forSave)
+    {
+        if(!this.isLoaded()) {
+            return null;
+        }
+        File concertDirectory = new File(directory + File.separator + this);
+        concertDirectory.mkdir();
+        this.openJournal(concertDirectory, -1);
+        ConcertState state = this.captureLocked(concertDirectory, forSave, 0);
+        this.mainDirectory_ = directory;
+        return state;
+    }
+
+    //Copies the concert while holding every section lock, taken in section order,
+    //so the copy matches the journal up to the ticket that is taken with it
+    private ConcertState captureLocked(File concertDirectory, boolean forSave, int section)
+    {
+        if(section < this.sectionLocks.length) {
+            synchronized(this.sectionLocks[section]) {
+                return this.captureLocked(concertDirectory, forSave, section + 1);
             }
-            else {
-                for(int j = 0; j < SEAT_NUMBERS.length; j++) {
-                    this.seats[seatIndex] = new BronzeSeat(SEAT_ROWS[i], SEAT_NUMBERS[j]);
-                    this.seats[seatIndex].setPrice(this.bronzeSectionPrice_);
-                    seatIndex++;
+        }
+        List<String> customerLines = null;
+        if(this.customersChanged) {
+            customerLines = new ArrayList<>(this.customers.size());
+            for(Customer customer : this.customers.getSortedCustomers()) {
+                customerLines.add(customer.toRecord());
+            }
+        }
+        List<String> seatLines = null;
+        if(this.seatsChanged) {
+            seatLines = new ArrayList<>(this.occupancy.getBookedCount());
+            for(Seat seat : this.getBookedSeats()) {
+                seatLines.add(seat.toRecord(this.customers.get(seat.getBookeeId())));
+            }
+        }
+
+        //A snapshot left from an earlier run would now be out of date
+        ByteBuffer snapshot = null;
+        if(WRITE_SNAPSHOTS && (customerLines != null || seatLines != null
+                || !new File(concertDirectory + File.separator + SnapshotFile.FILE_NAME).exists())) {
+            snapshot = SnapshotFile.encode(this);
+        }
+        List<String> priceRecords = new ArrayList<>();
+        for(int i = 0; i < this.sectionPrices.length; i++) {
+            priceRecords.add(BookingJournal.priceRecord(i, this.sectionPrices[i]));
+        }
+
+        BookingJournal journal = this.journal;
+        ConcertState state = new ConcertState(
+                this.toString(), concertDirectory, customerLines, seatLines, snapshot, !WRITE_SNAPSHOTS,
+                journal, journal != null ? journal.mark() : 0, priceRecords, forSave
+        );
+        this.customersChanged = false;
+        this.seatsChanged = false;
+        if(forSave) {
+            this.recentlyChanged = false;
+        }
+        return state;
+    }
+
+    //Marks the files a copy failed to write as out of date again
+    void saveFailed(ConcertState state)
+    {
+        if(state.hasCustomers()) {
+            this.customersChanged = true;
+        }
+        if(state.hasSeats()) {
+            this.seatsChanged = true;
+        }
+        if(state.isForSave()) {
+            this.recentlyChanged = true;
+        }
+    }
+
+    //The concerts line in the concert list: its name, date, the price of each
+    //section and, if it isn't the default layout, the name of its layout.
+    //The line is only rebuilt after a price change, so writing out the concert
+    //list doesn't format the prices of every concert again
+    public String getListLine()
+    {
+        String line = this.listLine;
+        if(line == null) {
+            StringBuilder builder = new StringBuilder(this.toString());
+            for(double price : this.sectionPrices) {
+                builder.append(String.format(" %.2f", price));
+            }
+            if(this.layout_ != HallLayout.DEFAULT) {
+                builder.append(' ').append(this.layout_.getName());
+            }
+            line = builder.toString();
+            this.listLine = line;
+        }
+        return line;
+    }
+
+    //Checks if the concerts line in the concert list is out of date
+    public boolean isListLineChanged()
+    {
+        return this.listLineChanged;
+    }
+
+    public void markListLineSaved()
+    {
+        this.listLineChanged = false;
+    }
+
+    //Load in a concert from its line in the concert list, and returns it for the
+    //ConcertController to manage. Its customers and booked seats are not read
+    //until loadBookings() is called
+    public static Concert load(RecordReader concertInput, String mainDirectory, int concertLineNum) throws ConcertIOException
+    {
+        Concert tempConcert = new Concert();
+        tempConcert.linePosition = concertLineNum;
+        tempConcert.mainDirectory_ = mainDirectory;
+        List<RuntimeException> errors = new ArrayList<>();
+        try {
+            //The name is every token up to the date
+            StringBuilder name = new StringBuilder(concertInput.nextToken());
+            while(concertInput.hasNextToken() && !concertInput.hasNextDate()) {
+                name.append(' ').append(concertInput.nextToken());
+            }
+            tempConcert.name_ = name.toString();
+            tempConcert.date_ = concertInput.nextToken();
+            tempConcert.key_ = new ConcertKey(tempConcert.name_, LocalDate.parse(tempConcert.date_));
+
+            //The rest of the line holds one price per section of the layout,
+            //followed by the layout name when it isn't the default layout
+            double[] prices = new double[4];
+            int nPrices = 0;
+            while(concertInput.hasNextDouble()) {
+                if(nPrices == prices.length) {
+                    prices = Arrays.copyOf(prices, nPrices * 2);
                 }
+                prices[nPrices++] = concertInput.nextDouble();
             }
+            File layoutDirectory = new File(mainDirectory + File.separator + HallLayout.LAYOUT_DIRECTORY);
+            String layoutName = concertInput.hasNextToken() ? concertInput.nextToken() : HallLayout.DEFAULT_NAME;
+            tempConcert.layout_ = HallLayout.forName(layoutName, layoutDirectory);
+            if(nPrices != tempConcert.layout_.getSectionCount() || concertInput.hasNextToken()) {
+                throw new LayoutIOException(
+                        new File(layoutDirectory + File.separator + layoutName + ".txt"),
+                        "expected a price for each of the " + tempConcert.layout_.getSectionCount() + " sections"
+                );
+            }
+            tempConcert.initializePrices(Arrays.copyOf(prices, nPrices));
+        }
+        catch(LayoutIOException layout) {
+            errors.add(layout);
         }
+        catch(DateTimeParseException date) {
+            errors.add(new IllegalArgumentException(
+                    "\t\tInvalid concert date " + date.getParsedString() + "\n"
+            ));
+        }
+        catch(NoSuchElementException missing) {
+            errors.add(new IllegalArgumentException(
+                    "\t\tMissing concert name or date\n"
+            ));
+        }
+        if(errors.size() > 0) {
+            METRICS.recordParseErrors(errors.size());
+            throw new ConcertIOException(tempConcert, errors);
+        }
+        return tempConcert;
     }
 
-    //Saves the current concert along with its info, booked seats and customers, to file
-    public boolean save(String directory) throws FileNotFoundException
+    //Reads in the customers and booked seats of a concert from the concert list,
+    //if any line fails to load the concert is left unloaded
+    public synchronized void loadBookings() throws ConcertIOException
     {
+        if(this.isLoaded()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<RuntimeException> errors = new ArrayList<>();
+        boolean changedSinceSave = false;
+        this.initializeSeats();
         try {
-            //Create directory for current concert
-            File concertDirectory = new File(
-                directory + File.separator + this
-            );
+            File concertDirectory = new File(this.mainDirectory_ + File.separator + this);
             concertDirectory.mkdir();
 
-            this.saveCustomers(concertDirectory);
-            this.saveSeats(concertDirectory);
+            if(!this.loadSnapshot(concertDirectory)) {
+                loadCustomers(concertDirectory, this, errors);
+                loadSeats(concertDirectory, this, errors);
+            }
+            this.customersChanged = false;
+            this.seatsChanged = false;
+            if(errors.isEmpty()) {
+                JournalReplay replay = new JournalReplay();
+                int replayed = BookingJournal.replay(BookingJournal.getFile(concertDirectory), replay);
+                changedSinceSave = replay.changed;
+                this.openJournal(concertDirectory, replayed);
+            }
         }
         catch(IOException io) {
             System.out.println(io.getMessage());
-            return false;
         }
-        this.recentlyChanged = false;
-        return true;
+        if(errors.size() > 0) {
+            this.releaseBookings();
+            METRICS.recordParseErrors(errors.size());
+            throw new ConcertIOException(this, errors);
+        }
+        this.recentlyChanged = changedSinceSave;
+        for(BookingListener listener : this.listeners) {
+            this.announceBookings(listener, 0);
+        }
+        METRICS.recordConcertLoad(System.nanoTime() - start);
     }
 
-    private void saveSeats(File concertDirectory) throws FileNotFoundException
+    //Tells the listener about every booking made from now on, and about the ones
+    //already made, straight away if they are loaded or else when they are loaded.
+    //The listeners are kept in an array that is copied when one is added or removed,
+    //so telling them about a booking doesn't allocate anything
+    public synchronized void addBookingListener(BookingListener listener)
     {
-        PrintWriter seatOutput = new PrintWriter(new File(
-                concertDirectory + File.separator + "Booked_seats.txt")
-        );
+        for(BookingListener existing : this.listeners) {
+            if(existing == listener) {
+                return;
+            }
+        }
+        BookingListener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        this.listeners = listeners;
+        if(this.isLoaded()) {
+            this.announceBookings(listener, 0);
+        }
+    }
 
-        for (Seat seat : this.seats) {
-            if (seat.getStatus()) {
-                if (seat.save(seatOutput)) {
-                    System.out.println(
-                            "Successfully saved seat " + "(" + seat + ")"
-                                    + " for concert " + this
-                    );
-                } else {
-                    System.out.println(
-                            "Failed to save seat " + "(" + seat + ")"
-                                    + " for concert " + this
-                    );
-                }
+    public synchronized void removeBookingListener(BookingListener listener)
+    {
+        BookingListener[] listeners = new BookingListener[this.listeners.length];
+        int count = 0;
+        for(BookingListener existing : this.listeners) {
+            if(existing != listener) {
+                listeners[count++] = existing;
             }
         }
-        seatOutput.close();
+        this.listeners = Arrays.copyOf(listeners, count);
     }
 
-    private void saveCustomers(File concertDirectory) throws FileNotFoundException
+    //Passes the booked seats to the listener while holding every section lock,
+    //taken in section order, so no booking is missed or told twice
+    private void announceBookings(BookingListener listener, int section)
     {
-        PrintWriter customerOutput = new PrintWriter(new File(
-                concertDirectory + File.separator + "Customers.txt")
-        );
+        if(section < this.sectionLocks.length) {
+            synchronized(this.sectionLocks[section]) {
+                this.announceBookings(listener, section + 1);
+            }
+            return;
+        }
+        listener.bookingsLoaded(this, this.getBookedSeats());
+    }
 
-        for(Customer customer : this.customers) {
-            if(customer.save(customerOutput)) {
-                System.out.println(
-                        "Successfully saved customer " + customer.getName()
-                                + " for concert " + this
-                );
+    //Applies the changes recorded in the journal since the concert was last saved.
+    //The journal is not open while replaying, so nothing is written back to it, and
+    //the listeners are not told of each change, only of the bookings once loaded
+    private class JournalReplay implements BookingJournal.Replay
+    {
+        private boolean changed = false;
+
+        @Override
+        public void booked(int seatIndex, boolean goldEntitled, boolean silverEntitled, String name)
+        {
+            if(seatIndex < 0 || seatIndex >= seats.length || occupancy.isBooked(seatIndex)) {
+                return;
+            }
+            Customer customer = customers.find(name);
+            if(customer == null) {
+                customer = new Customer(name, goldEntitled, silverEntitled);
+                restoreCustomer(customer);
             }
             else {
-                System.out.println(
-                        "Failed to save customer " + customer.getName()
-                                + " for concert " + this
-                );
+                customer.restoreEntitlements(goldEntitled, silverEntitled);
+            }
+            if(restoreBooking(seatIndex, customer)) {
+                customersChanged = true;
+                seatsChanged = true;
+                this.changed = true;
+            }
+        }
+
+        @Override
+        public void unBooked(int seatIndex)
+        {
+            if(seatIndex < 0 || seatIndex >= seats.length || !seats[seatIndex].getStatus()) {
+                return;
+            }
+            Seat seat = seats[seatIndex];
+            Customer customer = customers.get(seat.getBookeeId());
+            if(customer != null) {
+                clearBooking(seat, getSectionIndex(seat), customer);
+                this.changed = true;
             }
         }
-        customerOutput.close();
+
+        @Override
+        public void priceChanged(int section, double price)
+        {
+            if(section < 0 || section >= sectionPrices.length || sectionPrices[section] == price) {
+                return;
+            }
+            applySectionPrice(section, toPence(price) / 100.0);
+            this.changed = true;
+        }
     }
 
-    //Load in a concert from file, populating it with its customers and booked seats,
-    //and returns it for the ConcertController to manage
-    public static Concert load(Scanner concertInput, String mainDirectory, int concertLineNum) throws ConcertIOException
+    //Opens the journal once its first existingRecords lines have been replayed, or with
+    //-1 for a concert that has not replayed it, which starts it only if it is empty. A
+    //journal holding lines this concert never replayed is left alone rather than cut off
+    private void openJournal(File concertDirectory, int existingRecords)
     {
-        Concert tempConcert = new Concert();
-        tempConcert.linePosition = concertLineNum;
-        List<RuntimeException> errors = new ArrayList<>();
+        if(this.journal != null) {
+            return;
+        }
+        File journalFile = BookingJournal.getFile(concertDirectory);
+        if(existingRecords < 0) {
+            if(journalFile.length() > 0) {
+                System.out.println("Not journalling " + this + ", " + journalFile + " holds changes that were never replayed");
+                return;
+            }
+            existingRecords = 0;
+        }
         try {
-            tempConcert.name_ = concertInput.next();
-            Pattern dateRegex = Pattern.compile("[\\d]{4}[-][\\d]{2}[-][\\d]{2}");
-            while(!concertInput.hasNext(dateRegex)) {
-                tempConcert.name_ += " " + concertInput.next();
-            }
-            tempConcert.date_ = concertInput.next();
-            tempConcert.goldSectionPrice_ = concertInput.nextDouble();
-            tempConcert.silverSectionPrice_ = concertInput.nextDouble();
-            tempConcert.bronzeSectionPrice_ = concertInput.nextDouble();
-            tempConcert.initializeSeats();
-
-            File concertDirectory = new File(mainDirectory + File.separator + tempConcert);
-            concertDirectory.mkdir();
+            this.journal = new BookingJournal(journalFile, existingRecords);
+        }
+        catch(IOException io) {
+            System.out.println(io.getMessage());
+        }
+    }
+
+    //Waits for a change to reach the journal on disk, and once the journal has
+    //grown too long queues it to be folded into the concerts files. Throws a
+    //JournalWriteException if the change could not be written, the change stays
+    //made and is kept by the next save, but is not safe from a crash until then
+    private void awaitJournal(BookingJournal journal, long ticket) throws JournalWriteException
+    {
+        if(journal == null) {
+            return;
+        }
+        try {
+            journal.awaitDurable(ticket);
+        }
+        catch(IOException io) {
+            throw new JournalWriteException(this.toString(), io);
+        }
+        if(journal.size() > COMPACT_AFTER_RECORDS && this.compacting.compareAndSet(false, true)) {
+            ConcertWriter.compact(this, this.mainDirectory_).whenComplete((saved, ex) -> this.compacting.set(false));
+        }
+    }
 
-            loadCustomers(concertDirectory, tempConcert, errors);
-            loadSeats(concertDirectory, tempConcert, errors);
+    //Reads the bookings from the concerts snapshot, if it has one that was written
+    //no earlier than its text files, returns false if the text files should be read
+    private boolean loadSnapshot(File concertDirectory)
+    {
+        File snapshotFile = new File(concertDirectory + File.separator + SnapshotFile.FILE_NAME);
+        File seatsFile = new File(concertDirectory + File.separator + "Booked_seats.txt");
+        File customersFile = new File(concertDirectory + File.separator + "Customers.txt");
+        if(!snapshotFile.canRead() || snapshotFile.lastModified() < seatsFile.lastModified()
+                || snapshotFile.lastModified() < customersFile.lastModified()) {
+            return false;
+        }
+        try {
+            SnapshotFile.read(snapshotFile, this);
+            return true;
         }
         catch(IOException io) {
             System.out.println(io.getMessage());
+            this.initializeSeats();
+            return false;
+        }
+    }
+
+    //Drops the seats and customers of a concert to free up memory, they can be
+    //read back in with loadBookings(). Returns false if the concert was never
+    //saved, or has unsaved changes that are not in its journal, as these would be lost
+    public synchronized boolean unload()
+    {
+        if(!this.isLoaded() || this.mainDirectory_ == null
+                || (this.recentlyChanged && (this.journal == null || this.journal.hasFailed()))
+                || this.heldSeats.getBookedCount() > 0) {
+            return false;
+        }
+        this.releaseBookings();
+        for(BookingListener listener : this.listeners) {
+            listener.bookingsUnloaded(this);
+        }
+        return true;
+    }
+
+    //Unloads a concert that has been removed from the catalog or replaced by a new
+    //concert with the same name and date, whatever it has not saved, and deletes its
+    //journal, so the concert that takes its place never shares or replays it
+    public synchronized void discard()
+    {
+        if(this.isLoaded()) {
+            this.releaseBookings();
+            for(BookingListener listener : this.listeners) {
+                listener.bookingsUnloaded(this);
+            }
         }
-        finally {
-            if(concertInput.hasNextLine()) {
-                concertInput.nextLine();
+        if(this.mainDirectory_ != null) {
+            File journalFile = BookingJournal.getFile(new File(this.mainDirectory_ + File.separator + this));
+            if(journalFile.exists() && !journalFile.delete()) {
+                System.out.println("Failed to delete " + journalFile);
             }
         }
-        if(errors.size() > 0) {
-            throw new ConcertIOException(tempConcert, errors);
+    }
+
+    private void releaseBookings()
+    {
+        this.seats = null;
+        this.occupancy = null;
+        this.freeRuns = null;
+        for(int i = this.heldSeats.nextBooked(0); i >= 0; i = this.heldSeats.nextBooked(i + 1)) {
+            SeatHold hold = this.holds[i];
+            if(hold != null) {
+                hold.timeout.cancel();
+            }
         }
-        return tempConcert;
+        this.heldSeats = null;
+        this.holds = null;
+        this.customers = null;
+        this.sectionLocks = null;
+        if(this.journal != null) {
+            try {
+                this.journal.close();
+            }
+            catch(IOException io) {
+                System.out.println(io.getMessage());
+            }
+            this.journal = null;
+        }
+    }
+
+    public boolean isLoaded()
+    {
+        return this.seats != null;
     }
 
     private static void loadCustomers(File concertDirectory, Concert tempConcert, List<RuntimeException> errors) throws IOException
     {
-        int customerLineNum = 1;
         File customersFile = new File(concertDirectory + File.separator + "Customers.txt");
 
         if(customersFile.canRead()) {
-            Scanner customerInput = new Scanner(customersFile);
-            while(customerInput.hasNextLine()) {
-                try {
-                    Customer tempCustomer = Customer.load(customerInput, customersFile, customerLineNum++);
-                    tempConcert.customers.add(tempCustomer);
-                }
-                catch(CustomerIOException io) {
-                    errors.add(io);
+            try(RecordReader customerInput = new RecordReader(customersFile)) {
+                while(customerInput.nextLine()) {
+                    if(customerInput.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        int customerLineNum = customerInput.getLineNumber();
+                        Customer tempCustomer = Customer.load(customerInput, customersFile, customerLineNum);
+
+                        //Names are matched ignoring case and spacing, so a second customer with
+                        //the same name is merged into the first, who keeps the entitlements of
+                        //both, and the seats booked under either spelling are loaded for them
+                        if(!tempConcert.restoreCustomer(tempCustomer)) {
+                            Customer earlier = tempConcert.customers.find(tempCustomer.getName());
+                            earlier.restoreEntitlements(
+                                    earlier.isGoldEntitled() || tempCustomer.isGoldEntitled(),
+                                    earlier.isSilverEntitled() || tempCustomer.isSilverEntitled()
+                            );
+                            System.out.println(
+                                    "\t\tMerged customer " + tempCustomer.getName() + " on line " + customerLineNum
+                                    + " into " + earlier.getName() + " ...in location " + customersFile
+                            );
+                        }
+                    }
+                    catch(CustomerIOException io) {
+                        errors.add(io);
+                    }
                 }
             }
-            customerInput.close();
         }
         else {
             customersFile.createNewFile();
@@ -227,40 +683,73 @@ public class Concert implements Comparable<Concert>
 
     private static void loadSeats(File concertDirectory, Concert tempConcert, List<RuntimeException> errors) throws IOException
     {
-        int seatLineNum = 0;
         File seatsFile = new File(concertDirectory + File.separator + "Booked_seats.txt");
 
         if(seatsFile.canRead()) {
-            Scanner seatInput = new Scanner(seatsFile);
-            while(seatInput.hasNextLine()) {
-                try {
-                    seatLineNum++;
-                    Seat tempSeat = Seat.load(seatInput, seatsFile, seatLineNum);
-                    Seat actualSeat = tempConcert.getSeat(tempSeat.getRow(), tempSeat.getNumber());
-                    actualSeat.setBookee(tempSeat.getBookee());
-
-                    Customer tempCustomer = new Customer(actualSeat.getBookee());
-                    Customer actualCustomer = tempConcert.findCustomer(tempCustomer);
-
-                    if (actualCustomer != null) {
-                        actualCustomer.addSeat(actualSeat);
-                        tempConcert.nBookedSeats_++;
+            try(RecordReader seatInput = new RecordReader(seatsFile)) {
+                while(seatInput.nextLine()) {
+                    if(seatInput.isBlank()) {
+                        continue;
                     }
-                    else {
-                        throw new SeatIOException(seatsFile, seatLineNum);
+                    int seatLineNum = seatInput.getLineNumber();
+                    try {
+                        Seat tempSeat = Seat.load(seatInput, seatsFile, seatLineNum, tempConcert.customers);
+                        Seat actualSeat = tempConcert.getSeat(tempSeat.getRow(), tempSeat.getNumber());
+                        if(actualSeat == null) {
+                            throw new SeatIOException(seatsFile, seatLineNum);
+                        }
+
+                        Customer actualCustomer = tempConcert.customers.get(tempSeat.getBookeeId());
+
+                        //A seat listed twice in the file is treated as a bad line
+                        if(actualCustomer == null || !tempConcert.restoreBooking(actualSeat.getIndex(), actualCustomer)) {
+                            throw new SeatIOException(seatsFile, seatLineNum);
+                        }
+                    }
+                    catch(SeatIOException io) {
+                        errors.add(io);
                     }
-                }
-                catch(SeatIOException io) {
-                    errors.add(io);
                 }
             }
-            seatInput.close();
         }
         else {
             seatsFile.createNewFile();
         }
     }
 
+    //Registers a customer read back from file, returns false
+    //if a customer with the same name is already registered
+    boolean restoreCustomer(Customer customer)
+    {
+        return this.customers.add(customer);
+    }
+
+    //Marks a seat read back from file as booked by the customer, without
+    //handing out entitlements again, returns false if it is already booked
+    boolean restoreBooking(int seatIndex, Customer customer)
+    {
+        Seat seat = this.seats[seatIndex];
+        if(!this.occupancy.set(seatIndex, this.getSectionIndex(seat))) {
+            return false;
+        }
+        this.freeRuns.book(seatIndex);
+        seat.setBookeeId(customer.getId());
+        customer.addSeat(seat);
+        return true;
+    }
+
+    //Returns the customer who booked the seat, or null if it is not booked,
+    //found by indexing the customer table with the id the seat keeps
+    public Customer getCustomer(Seat seat)
+    {
+        return this.customers.get(seat.getBookeeId());
+    }
+
+    public Customer findCustomer(String name)
+    {
+        return this.customers.find(name);
+    }
+
     public String getName()
     {
         return this.name_;
@@ -271,66 +760,397 @@ public class Concert implements Comparable<Concert>
         return this.date_;
     }
 
+    public LocalDate getLocalDate()
+    {
+        return this.key_.getDate();
+    }
+
+    public ConcertKey getKey()
+    {
+        return this.key_;
+    }
+
+    public HallLayout getLayout()
+    {
+        return this.layout_;
+    }
+
     public Seat[] getSeats()
     {
         return this.seats;
     }
 
-    public List<Customer> getCustomers()
+    //Returns a live, read only view of the customers sorted by name
+    public Collection<Customer> getCustomers()
+    {
+        return this.customers.getSortedCustomers();
+    }
+
+    //Returns up to limit customers with a word of their name starting with the
+    //text, for finding a customer as their name is typed
+    public List<Customer> searchCustomers(String text, int limit)
+    {
+        return this.customers.search(text, limit);
+    }
+
+    //Returns the booked seats in seat order, found through the occupancy
+    //bitmap so only booked seats are visited
+    public List<Seat> getBookedSeats()
+    {
+        List<Seat> bookedSeats = new ArrayList<>(this.occupancy.getBookedCount());
+        for(int i = this.occupancy.nextBooked(0); i >= 0; i = this.occupancy.nextBooked(i + 1)) {
+            bookedSeats.add(this.seats[i]);
+        }
+        return bookedSeats;
+    }
+
+    public boolean isSeatBooked(int seatIndex)
+    {
+        return this.occupancy.isBooked(seatIndex);
+    }
+
+    public boolean isSeatHeld(int seatIndex)
+    {
+        return this.heldSeats.isBooked(seatIndex);
+    }
+
+    public int getHeldSeatCount()
+    {
+        return this.heldSeats.getBookedCount();
+    }
+
+    public int getBookedSeatCount()
+    {
+        return this.occupancy.getBookedCount();
+    }
+
+    public int getAvailableSeatCount()
+    {
+        return this.occupancy.getAvailableCount() - this.heldSeats.getBookedCount();
+    }
+
+    public int getAvailableSeatCount(String seatSection)
+    {
+        int section = this.getSectionIndex(seatSection);
+        return this.occupancy.getAvailableCount(section) - this.heldSeats.getBookedCount(section);
+    }
+
+    public boolean isSoldOut()
+    {
+        return this.getAvailableSeatCount() == 0;
+    }
+
+    public boolean isSoldOut(String seatSection)
     {
-        return this.customers;
+        return this.getAvailableSeatCount(seatSection) == 0;
     }
 
+    //Returns the seat at the row and number, or null if the layout has no such seat.
+    //The layout maps the row label straight to the index of its first seat,
+    //so the seat number is just an offset from there
     public Seat getSeat(String seatRow, int seatNum)
     {
-        int i = 0;
-        while(!seatRow.equals(SEAT_ROWS[i])) {
-            i++;
+        int seatIndex = this.layout_.getSeatIndex(seatRow, seatNum);
+        if(seatIndex < 0) {
+            return null;
         }
+        return this.seats[seatIndex];
+    }
 
-        if(i == 0) {
-            //If the seatRow is A, just return seat at index seatNum - 1
-            return this.seats[seatNum-1];
+    //Books the seat for the named customer, returns false if another
+    //caller has already claimed the seat. The seat is claimed under its
+    //section lock, and the customer is found or created, and given the seat,
+    //in a single atomic step on the registry
+    public boolean bookSeat(Seat seat, String name) throws JournalWriteException
+    {
+        long start = System.nanoTime();
+        int section = this.getSectionIndex(seat);
+        BookingJournal journal;
+        long ticket = 0;
+        synchronized(this.sectionLocks[section]) {
+            if(this.heldSeats.isBooked(seat.getIndex()) || !this.occupancy.set(seat.getIndex(), section)) {
+                METRICS.recordFailedBooking();
+                return false;
+            }
+            this.freeRuns.book(seat.getIndex());
+            journal = this.journal;
+            ticket = this.recordBooking(seat, name, journal);
         }
-        else {
-            //If the seatRow is not A, return seat at index (seatNum - 1) + (seatRow index * 10)
-            //Each row has 10 seats, so if seatRow is B and seatNum is 5,
-            //its index is 14 because seatRow B index is 1 and (5 - 1) + (1 * 10) = 14
-            return this.seats[(seatNum-1) + (i*SEAT_NUMBERS.length)];
+        this.recentlyChanged = true;
+        this.awaitJournal(journal, ticket);
+        METRICS.recordBooking(System.nanoTime() - start);
+        return true;
+    }
+
+    //Gives a claimed seat to the named customer and tells the listeners and the
+    //journal, returns the journal ticket of the booking. Called under the section lock
+    private long recordBooking(Seat seat, String name, BookingJournal journal)
+    {
+        int customerBefore = customerState(this.customers.find(name));
+        Customer customer = this.customers.book(name, seat);
+        for(BookingListener listener : this.listeners) {
+            listener.seatBooked(this, seat);
+        }
+        this.seatsChanged = true;
+        if(customerState(customer) != customerBefore) {
+            this.customersChanged = true;
+        }
+        return journal != null ? journal.logBooking(seat.getIndex(), customer) : 0;
+    }
+
+    //Holds a free seat for ttlMillis, so no one else can book or hold it until the
+    //hold is booked, released or runs out. Returns null if the seat is booked or
+    //already held. Holds are not saved, and are all dropped if the concert is closed.
+    //Every hold runs out through the one shared timer wheel, so holding a seat
+    //costs a slot in the wheel rather than a thread or a scheduled task
+    public SeatHold holdSeat(Seat seat, long ttlMillis)
+    {
+        int section = this.getSectionIndex(seat);
+        int seatIndex = seat.getIndex();
+        SeatHold hold;
+        synchronized(this.sectionLocks[section]) {
+            if(this.occupancy.isBooked(seatIndex) || !this.heldSeats.set(seatIndex, section)) {
+                return null;
+            }
+            this.freeRuns.book(seatIndex);
+            hold = new SeatHold(seat, System.currentTimeMillis() + ttlMillis);
+            this.holds[seatIndex] = hold;
+            hold.timeout = HOLD_TIMER.schedule(ttlMillis, () -> this.releaseHold(hold));
+            for(BookingListener listener : this.listeners) {
+                listener.seatHeld(this, seat);
+            }
         }
+        return hold;
     }
 
-    public void bookSeat(Seat seat, String name)
+    //Books a held seat for the named customer, returns false if the hold
+    //has run out or been released, even if the seat is still free
+    public boolean bookHeldSeat(SeatHold hold, String name) throws JournalWriteException
     {
-        Customer customer = this.findCustomer(new Customer(name));
+        long start = System.nanoTime();
+        Seat seat = hold.getSeat();
+        int section = this.getSectionIndex(seat);
+        BookingJournal journal;
+        long ticket;
+        synchronized(this.sectionLocks[section]) {
+            if(!this.takeHold(hold)) {
+                METRICS.recordFailedBooking();
+                return false;
+            }
+            //The hold is given up if the seat was booked past it, it stays taken in
+            //the free runs as it is booked, so only the listeners need to be told
+            if(!this.occupancy.set(seat.getIndex(), section)) {
+                for(BookingListener listener : this.listeners) {
+                    listener.seatReleased(this, seat);
+                }
+                METRICS.recordFailedBooking();
+                return false;
+            }
+            journal = this.journal;
+            ticket = this.recordBooking(seat, name, journal);
+        }
+        this.recentlyChanged = true;
+        this.awaitJournal(journal, ticket);
+        METRICS.recordBooking(System.nanoTime() - start);
+        return true;
+    }
 
-        if(customer != null) {
-            seat.book(customer);
+    //Gives back a held seat, returns false if the hold had already run out or been
+    //booked. Also called by the timer wheel when the hold runs out, which may be
+    //after the concert has been closed
+    public boolean releaseHold(SeatHold hold)
+    {
+        Object[] locks = this.sectionLocks;
+        if(locks == null) {
+            return false;
         }
-        else {
-            Customer newCustomer = new Customer(name);
-            seat.book(newCustomer);
-            this.customers.add(newCustomer);
-            this.customers.sort(null);
+        Seat seat = hold.getSeat();
+        synchronized(locks[this.getSectionIndex(seat)]) {
+            if(!this.takeHold(hold)) {
+                return false;
+            }
+            this.freeRuns.free(seat.getIndex());
+            for(BookingListener listener : this.listeners) {
+                listener.seatReleased(this, seat);
+            }
+        }
+        return true;
+    }
+
+    //Ends a hold that is still in place, returns false if it is not.
+    //Called under the section lock of the held seat
+    private boolean takeHold(SeatHold hold)
+    {
+        SeatHold[] current = this.holds;
+        int seatIndex = hold.getSeat().getIndex();
+        if(current == null || current[seatIndex] != hold) {
+            return false;
+        }
+        current[seatIndex] = null;
+        this.heldSeats.clear(seatIndex, this.getSectionIndex(hold.getSeat()));
+        hold.timeout.cancel();
+        return true;
+    }
+
+    //Books every seat for the named customer, or none of them. Returns false, with
+    //every seat left as it was, if any seat is already booked or is listed twice.
+    //The sections of the seats are locked in section order, so group bookings can't
+    //wait on each other, and the customer is found only once
+    public boolean bookSeats(List<Seat> seats, String name) throws JournalWriteException
+    {
+        if(seats.isEmpty()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        int[] sections = seats.stream().mapToInt(this::getSectionIndex).distinct().sorted().toArray();
+        BookingJournal[] journal = new BookingJournal[1];
+        long ticket = this.bookSeatsLocked(seats, name, sections, 0, journal);
+        if(ticket < 0) {
+            METRICS.recordFailedBooking();
+            return false;
         }
-        this.nBookedSeats_++;
         this.recentlyChanged = true;
+        this.awaitJournal(journal[0], ticket);
+        METRICS.recordBooking(System.nanoTime() - start);
+        return true;
     }
 
-    public void unBookSeat(Seat seat) throws CannotUnbookSeatException
+    //Claims the seats once the lock of every section they are in is held, giving
+    //back any already claimed if one of them turns out to be taken. Returns the
+    //journal ticket of the last booking, or -1 if no seat was booked
+    private long bookSeatsLocked(List<Seat> seats, String name, int[] sections, int next, BookingJournal[] journal)
     {
-        Customer customer = this.findCustomer(new Customer(seat.getBookee()));
+        if(next < sections.length) {
+            synchronized(this.sectionLocks[sections[next]]) {
+                return this.bookSeatsLocked(seats, name, sections, next + 1, journal);
+            }
+        }
+        for(int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            if(this.heldSeats.isBooked(seat.getIndex()) || !this.occupancy.set(seat.getIndex(), this.getSectionIndex(seat))) {
+                for(int claimed = 0; claimed < i; claimed++) {
+                    Seat undo = seats.get(claimed);
+                    this.occupancy.clear(undo.getIndex(), this.getSectionIndex(undo));
+                }
+                return -1;
+            }
+        }
+        for(Seat seat : seats) {
+            this.freeRuns.book(seat.getIndex());
+        }
 
-        if(customer != null) {
-            seat.unBook(customer);
-            this.nBookedSeats_--;
-            if(!customer.hasBookedASeat())
-            {
-                this.customers.remove(customer);
-                this.customers.sort(null);
+        int customerBefore = customerState(this.customers.find(name));
+        Customer customer = this.customers.bookAll(name, seats);
+        this.seatsChanged = true;
+        if(customerState(customer) != customerBefore) {
+            this.customersChanged = true;
+        }
+        long ticket = 0;
+        journal[0] = this.journal;
+        for(Seat seat : seats) {
+            for(BookingListener listener : this.listeners) {
+                listener.seatBooked(this, seat);
+            }
+            if(journal[0] != null) {
+                ticket = journal[0].logBooking(seat.getIndex(), customer);
+            }
+        }
+        return ticket;
+    }
+
+    //Returns the best block of partySize free seats next to each other in a row
+    //of the section, in seat order, or an empty list if no row has room. Rows are
+    //tried in the order the preference gives, and the block nearest the middle of
+    //the row is picked, all found through the free run index rather than a scan
+    public List<Seat> findBestSeats(String seatSection, int partySize, RowPreference preference)
+    {
+        int section = this.getSectionIndex(seatSection);
+        int first;
+        synchronized(this.sectionLocks[section]) {
+            first = this.freeRuns.findBlock(section, partySize, preference);
+        }
+        if(first < 0) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(Arrays.copyOfRange(this.seats, first, first + partySize));
+    }
+
+    public void unBookSeat(Seat seat) throws CannotUnbookSeatException, JournalWriteException
+    {
+        long start = System.nanoTime();
+        if(this.removeBooking(seat)) {
+            METRICS.recordUnBooking(System.nanoTime() - start);
+        }
+    }
+
+    //Takes the seat off its customer, returns false if it was not booked
+    private boolean removeBooking(Seat seat) throws CannotUnbookSeatException, JournalWriteException
+    {
+        int section = this.getSectionIndex(seat);
+        BookingJournal journal;
+        long ticket = 0;
+        synchronized(this.sectionLocks[section]) {
+            Customer customer = this.customers.get(seat.getBookeeId());
+            if(customer == null) {
+                return false;
+            }
+            if(this.clearBooking(seat, section, customer)) {
+                for(BookingListener listener : this.listeners) {
+                    listener.seatUnBooked(this, seat);
+                }
+            }
+            journal = this.journal;
+            if(journal != null) {
+                ticket = journal.logUnBooking(seat.getIndex());
             }
         }
         this.recentlyChanged = true;
+        this.awaitJournal(journal, ticket);
+        return true;
+    }
+
+    //Takes the seat from the customer who booked it, returns true if the seat is
+    //now free. Called under the section lock, or while the concert is loading
+    private boolean clearBooking(Seat seat, int section, Customer customer)
+    {
+        int customerBefore = customerState(customer);
+        this.customers.unBook(customer.getName(), seat);
+        boolean freed = !seat.getStatus();
+        if(freed) {
+            this.occupancy.clear(seat.getIndex(), section);
+            this.freeRuns.free(seat.getIndex());
+        }
+        this.seatsChanged = true;
+        //A customer left with no seats is removed, and gives up their id
+        if(customerState(customer.getId() == Seat.NO_CUSTOMER ? null : customer) != customerBefore) {
+            this.customersChanged = true;
+        }
+        return freed;
+    }
+
+    //Sums up what the customers file holds for a customer, whether they
+    //are registered and their entitlements, so a booking can tell if it
+    //has made the file out of date
+    private static int customerState(Customer customer)
+    {
+        if(customer == null) {
+            return 0;
+        }
+        return 1 | (customer.isGoldEntitled() ? 2 : 0) | (customer.isSilverEntitled() ? 4 : 0);
+    }
+
+    private int getSectionIndex(String seatSection)
+    {
+        int section = this.layout_.getSectionIndex(seatSection);
+        if(section < 0) {
+            throw new IllegalArgumentException("No seat section named " + seatSection);
+        }
+        return section;
+    }
+
+    private int getSectionIndex(Seat seat)
+    {
+        return this.layout_.getSectionOf(seat.getIndex());
     }
 
     public int getLinePosition()
@@ -341,7 +1161,7 @@ public class Concert implements Comparable<Concert>
     //This method returns the entitlement of the supplied seats bookee
     public String getCustomerEntitlement(Seat seat)
     {
-        Customer customer = this.findCustomer(new Customer(seat.getBookee()));
+        Customer customer = this.getCustomer(seat);
 
         if(customer != null)  {
             if(customer.getEntitlement() == null) {
@@ -357,32 +1177,31 @@ public class Concert implements Comparable<Concert>
     }
 
     //This method returns a report, detailing the available seats,
-    //booked seats and total sales of the concert
+    //booked seats and total sales of the concert. Held seats are not
+    //available, as in getAvailableSeatCount. Every seat in a section
+    //costs the same, so the sales of a section are its running count of
+    //booked seats times its price, and no seat is looked at
     public List<String> getReport()
     {
-        List<String> fullReport = new ArrayList<>();
-        double totalSales = 0;
+        List<String> fullReport = new ArrayList<>(8 + 2 * this.sectionPrices.length);
+        long totalSales = 0;
 
-        for(Seat seat : this.seats) {
-            if(seat.getStatus()) {
-                totalSales += seat.getPrice();
-            }
+        for(int i = 0; i < this.sectionPence.length; i++) {
+            totalSales += this.occupancy.getBookedCount(i) * this.sectionPence[i];
         }
 
         fullReport.add("Available Seats: ");
-        fullReport.add(String.valueOf(this.seats.length - this.nBookedSeats_));
+        fullReport.add(String.valueOf(this.getAvailableSeatCount()));
         fullReport.add("Booked Seats: ");
-        fullReport.add(String.valueOf(this.nBookedSeats_));
+        fullReport.add(String.valueOf(this.occupancy.getBookedCount()));
         fullReport.add("Customers: ");
         fullReport.add(String.valueOf(this.customers.size()));
-        fullReport.add("GoldSeat Price: ");
-        fullReport.add("£" + PRICE_FORMAT.format(this.goldSectionPrice_));
-        fullReport.add("SilverSeat Price: ");
-        fullReport.add("£" + PRICE_FORMAT.format(this.silverSectionPrice_));
-        fullReport.add("BronzeSeat Price: ");
-        fullReport.add("£" + PRICE_FORMAT.format(this.bronzeSectionPrice_));
+        for(int i = 0; i < this.sectionPrices.length; i++) {
+            fullReport.add(this.layout_.getSectionName(i) + "Seat Price: ");
+            fullReport.add(this.sectionPriceLabels[i]);
+        }
         fullReport.add("Total Sales: ");
-        fullReport.add("£" + PRICE_FORMAT.format(totalSales));
+        fullReport.add(formatPence(totalSales));
         return fullReport;
     }
 
@@ -392,16 +1211,16 @@ public class Concert implements Comparable<Concert>
     public String queryBySeat(Seat seat)
     {
         if(seat.getStatus()) {
-            Customer customer = this.findCustomer(new Customer(seat.getBookee()));
+            Customer customer = this.getCustomer(seat);
             if(customer != null)  {
                 if(customer.getEntitlement() == null) {
                     return "Selected seat " + "(" + seat
-                            + ")" + " is booked by " + seat.getBookee();
+                            + ")" + " is booked by " + customer.getName();
                 }
                 else {
                     return "Selected seat " + "(" + seat + ")"
-                            + " is booked by " + seat.getBookee() + "\n"
-                            + seat.getBookee() + " is entitled to "
+                            + " is booked by " + customer.getName() + "\n"
+                            + customer.getName() + " is entitled to "
                             + customer.getEntitlement();
                 }
             }
@@ -418,35 +1237,31 @@ public class Concert implements Comparable<Concert>
     //as well as any entitlements that have been given to them
     public String queryByCustomer(String name)
     {
-        String returnQuery = "";
-        Customer customer = this.findCustomer(new Customer(name));
+        StringBuilder returnQuery = new StringBuilder();
+        Customer customer = this.customers.find(name);
 
         if(customer != null) {
-            if(customer.getEntitlement() != null) {
-                returnQuery = customer.getName() + " is entitled to " + customer.getEntitlement() + "\n";
+            String entitlement = customer.getEntitlement();
+            if(entitlement != null) {
+                returnQuery.append(customer.getName()).append(" is entitled to ").append(entitlement).append('\n');
             }
 
-            returnQuery += customer.getName() + " has booked " + customer.getBookedSeats().size();
+            int[] bookedSeats = customer.getBookedSeatIndexes();
+            returnQuery.append(customer.getName()).append(" has booked ").append(bookedSeats.length);
 
-            if(customer.getBookedSeats().size() > 1) {
-                returnQuery += " seats:\n";
+            if(bookedSeats.length > 1) {
+                returnQuery.append(" seats:\n");
             }
             else {
-                returnQuery += " seat:\n";
+                returnQuery.append(" seat:\n");
             }
 
-            int counter = 0;
-            for(Seat seat : customer.getBookedSeats()) {
-                counter++;
-                if(counter < 5){
-                    returnQuery += "(" + seat + ") ";
-                }
-                else {
-                    returnQuery += "(" + seat + ")\n";
-                    counter = 0;
-                }
+            //Five seats to a line
+            for(int i = 0; i < bookedSeats.length; i++) {
+                returnQuery.append('(').append(this.seats[bookedSeats[i]]).append(')');
+                returnQuery.append((i + 1) % 5 == 0 ? '\n' : ' ');
             }
-            return returnQuery;
+            return returnQuery.toString();
         }
         else {
             return "Customer does not exist";
@@ -455,84 +1270,52 @@ public class Concert implements Comparable<Concert>
 
     //This method changes a seat sections price, and assigns the new price
     //to the appropriate seats belonging to that section
-    public void setSectionPrice(String seatSection, double newPrice)
+    public void setSectionPrice(String seatSection, double newPrice) throws JournalWriteException
     {
-        int i = 0;
-        double finalPrice = Double.parseDouble(PRICE_FORMAT.format(newPrice));
-
-        while(!seatSection.equals(SEAT_SECTIONS[i])) {
-            i++;
-        }
+        int section = this.getSectionIndex(seatSection);
+        double finalPrice = toPence(newPrice) / 100.0;
+        BookingJournal journal;
+        long ticket = 0;
 
-        switch(i) {
-            case 0: {
-                this.goldSectionPrice_ = finalPrice;
-                for(int j = 0; j < 30; j++) {
-                    this.seats[j].setPrice(this.goldSectionPrice_);
-                }
-                break;
+        synchronized(this.sectionLocks[section]) {
+            this.applySectionPrice(section, finalPrice);
+            for(BookingListener listener : this.listeners) {
+                listener.sectionPriceChanged(this, section, finalPrice);
             }
-            case 1: {
-                this.silverSectionPrice_ = finalPrice;
-                for(int j = 30; j < 60; j++) {
-                    this.seats[j].setPrice(this.silverSectionPrice_);
-                }
-                break;
-            }
-            default: {
-                this.bronzeSectionPrice_ = finalPrice;
-                for(int j = 60; j < 90; j++) {
-                    this.seats[j].setPrice(this.bronzeSectionPrice_);
-                }
-                break;
+            journal = this.journal;
+            if(journal != null) {
+                ticket = journal.logPrice(section, finalPrice);
             }
         }
         this.recentlyChanged = true;
+        this.awaitJournal(journal, ticket);
     }
 
-    public double getSectionPrice(String seatSection)
+    //Gives the section and each of its seats the price, called under the
+    //section lock, or while the concert is loading
+    private void applySectionPrice(int section, double finalPrice)
     {
-        int i = 0;
-        while(!seatSection.equals(SEAT_SECTIONS[i])) {
-            i++;
-        }
-
-        switch(i) {
-            case 0: {
-                return Double.parseDouble(
-                        PRICE_FORMAT.format(this.goldSectionPrice_)
-                );
-            }
-            case 1: {
-                return Double.parseDouble(
-                        PRICE_FORMAT.format(this.silverSectionPrice_)
-                );
-            }
-            default: {
-                return Double.parseDouble(
-                        PRICE_FORMAT.format(this.bronzeSectionPrice_)
-                );
+        this.storeSectionPrice(section, finalPrice);
+        for(int row : this.layout_.getSectionRows(section)) {
+            int firstSeat = this.layout_.getFirstSeatIndex(row);
+            int lastSeat = firstSeat + this.layout_.getRowLength(row);
+            for(int i = firstSeat; i < lastSeat; i++) {
+                this.seats[i].setPrice(finalPrice);
             }
         }
+        this.listLine = null;
+        this.listLineChanged = true;
     }
 
-    private Customer findCustomer(Customer customer)
+    public double getSectionPrice(String seatSection)
     {
-        int i = 0;
-        boolean foundCustomer = false;
-        while (i < this.customers.size() && !foundCustomer) {
-            if(this.customers.get(i).equals(customer)) {
-                foundCustomer = true;
-            } else {
-                i++;
-            }
-        }
-        if(!foundCustomer) {
-            return null;
-        }
-        else {
-            return this.customers.get(i);
-        }
+        return this.sectionPence[this.getSectionIndex(seatSection)] / 100.0;
+    }
+
+    //The price of a section in whole pence, rounded as the report rounds it
+    public long getSectionPence(int section)
+    {
+        return this.sectionPence[section];
     }
 
     @Override
@@ -541,38 +1324,26 @@ public class Concert implements Comparable<Concert>
         return this.name_ + " " + this.date_;
     }
 
+    //Concerts are ordered by date, and then by name
     @Override
     public int compareTo(Concert obj)
     {
-        if(this.hashCode() < obj.hashCode()) {
-            return -1;
-        }
-        else if(this.hashCode() == obj.hashCode()) {
-            return 0;
-        }
-        else {
-            return 1;
-        }
+        return this.key_.compareTo(obj.key_);
     }
 
     @Override
     public boolean equals(Object obj)
     {
-        if(obj.getClass().isInstance(this)) {
-            if(this.hashCode() == obj.hashCode()) {
-                return true;
-            }
+        if(!(obj instanceof Concert)) {
+            return false;
         }
-        return false;
+        return this.key_.equals(((Concert) obj).key_);
     }
 
     @Override
     public int hashCode()
     {
-        int hash = 5;
-        hash = 61 * hash + Objects.hashCode(this.name_);
-        hash = 61 * hash + Objects.hashCode(this.date_);
-        return hash;
+        return this.key_.hashCode();
     }
 
     public boolean isRecentlyChanged()
@@ -0,0 +1,121 @@
+package concerthallsystem.main;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The ConcertCatalog class holds every concert in the system, keyed by
+ * their name and date. Concerts are found by key through a hash index,
+ * and a second index sorted by date lets the catalog answer date range
+ * queries, such as every concert in a month, by only visiting the concerts
+ * in that range. Iterating over the catalog visits concerts in date order.
+ *
+ * @author Daniel Black
+ */
+
+public class ConcertCatalog implements Iterable<Concert>
+{
+    private final Map<ConcertKey, Concert> index = new HashMap<>();
+    private final TreeMap<ConcertKey, Concert> byDate = new TreeMap<>();
+    private int modCount;
+
+    //Adds the concert, returns false if a concert with
+    //the same name and date is already in the catalog
+    public boolean add(Concert concert)
+    {
+        ConcertKey key = concert.getKey();
+        if(this.index.putIfAbsent(key, concert) != null) {
+            return false;
+        }
+        this.byDate.put(key, concert);
+        this.modCount++;
+        return true;
+    }
+
+    //Adds the concert, replacing any concert with the same
+    //name and date, and returns the replaced concert
+    public Concert put(Concert concert)
+    {
+        ConcertKey key = concert.getKey();
+        this.byDate.put(key, concert);
+        this.modCount++;
+        return this.index.put(key, concert);
+    }
+
+    public boolean remove(Concert concert)
+    {
+        ConcertKey key = concert.getKey();
+        if(this.index.remove(key) == null) {
+            return false;
+        }
+        this.byDate.remove(key);
+        this.modCount++;
+        return true;
+    }
+
+    public Concert find(ConcertKey key)
+    {
+        return this.index.get(key);
+    }
+
+    public Concert find(String name, LocalDate date)
+    {
+        return this.index.get(new ConcertKey(name, date));
+    }
+
+    //Returns the concerts from the first date up to and including the last date, in date
+    //order. A last date before the first date is an empty range rather than an error
+    public Collection<Concert> between(LocalDate firstDate, LocalDate lastDate)
+    {
+        if(lastDate.isBefore(firstDate)) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(this.byDate.subMap(
+                ConcertKey.firstOn(firstDate), true,
+                ConcertKey.lastOn(lastDate), true
+        ).values());
+    }
+
+    public Collection<Concert> onOrAfter(LocalDate firstDate)
+    {
+        return Collections.unmodifiableCollection(
+                this.byDate.tailMap(ConcertKey.firstOn(firstDate), true).values()
+        );
+    }
+
+    //Counts the concerts added, replaced and removed, so a
+    //saved copy of the catalog can tell when it is out of date
+    public int getModCount()
+    {
+        return this.modCount;
+    }
+
+    public int size()
+    {
+        return this.index.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return this.index.isEmpty();
+    }
+
+    //Returns a copy of the concerts in date order
+    public List<Concert> toList()
+    {
+        return new ArrayList<>(this.byDate.values());
+    }
+
+    @Override
+    public Iterator<Concert> iterator()
+    {
+        return Collections.unmodifiableCollection(this.byDate.values()).iterator();
+    }
+}
@@ -0,0 +1,97 @@
+package concerthallsystem.main;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The ConcertKey class identifies a concert by its name and date.
+ * Two concerts with the same key are the same concert, and keys are
+ * ordered by date first and then by name, which is the order concerts
+ * are kept in by the main.ConcertCatalog.
+ *
+ * @author Daniel Black
+ */
+
+public final class ConcertKey implements Comparable<ConcertKey>
+{
+    private final String name_;
+    private final LocalDate date_;
+    //Below zero for a key before every concert on its date, above
+    //zero for a key after every concert on its date, otherwise zero
+    private final int bound_;
+
+    public ConcertKey(String name, LocalDate date)
+    {
+        this(name, date, 0);
+    }
+
+    private ConcertKey(String name, LocalDate date, int bound)
+    {
+        this.name_ = Objects.requireNonNull(name);
+        this.date_ = Objects.requireNonNull(date);
+        this.bound_ = bound;
+    }
+
+    //Returns a key that sorts before every concert on the date, to search the catalog by date
+    static ConcertKey firstOn(LocalDate date)
+    {
+        return new ConcertKey("", date, -1);
+    }
+
+    //Returns a key that sorts after every concert on the date, to search the catalog by date
+    static ConcertKey lastOn(LocalDate date)
+    {
+        return new ConcertKey("", date, 1);
+    }
+
+    public String getName()
+    {
+        return this.name_;
+    }
+
+    public LocalDate getDate()
+    {
+        return this.date_;
+    }
+
+    @Override
+    public int compareTo(ConcertKey obj)
+    {
+        int result = this.date_.compareTo(obj.date_);
+        if(result == 0) {
+            result = Integer.compare(this.bound_, obj.bound_);
+        }
+        if(result == 0) {
+            result = this.name_.compareTo(obj.name_);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof ConcertKey)) {
+            return false;
+        }
+        ConcertKey other = (ConcertKey) obj;
+        return this.date_.equals(other.date_) && this.name_.equals(other.name_) && this.bound_ == other.bound_;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = 5;
+        hash = 61 * hash + this.name_.hashCode();
+        hash = 61 * hash + this.date_.hashCode();
+        return hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name_ + " " + this.date_;
+    }
+}
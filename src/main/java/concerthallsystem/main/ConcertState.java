@@ -0,0 +1,114 @@
+package concerthallsystem.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The ConcertState class is an unchanging copy of what a concert writes to its
+ * files, taken at one moment while no bookings could be made. Taking the copy only
+ * formats the lines that are out of date, which is quick, so the slow part of saving,
+ * writing the files, can be done later on another thread while bookings carry on.
+ * A file that was up to date when the copy was taken is left out of it.
+ *
+ * @author Daniel Black
+ */
+
+final class ConcertState
+{
+    private final String concertName;
+    private final File concertDirectory;
+    private final List<String> customerLines;
+    private final List<String> seatLines;
+    private final ByteBuffer snapshot;
+    private final boolean deleteSnapshot;
+    private final BookingJournal journal;
+    private final long journalTicket;
+    private final List<String> priceRecords;
+    private final boolean forSave;
+
+    ConcertState(String concertName, File concertDirectory, List<String> customerLines, List<String> seatLines,
+                 ByteBuffer snapshot, boolean deleteSnapshot, BookingJournal journal, long journalTicket,
+                 List<String> priceRecords, boolean forSave)
+    {
+        this.concertName = concertName;
+        this.concertDirectory = concertDirectory;
+        this.customerLines = customerLines;
+        this.seatLines = seatLines;
+        this.snapshot = snapshot;
+        this.deleteSnapshot = deleteSnapshot;
+        this.journal = journal;
+        this.journalTicket = journalTicket;
+        this.priceRecords = priceRecords;
+        this.forSave = forSave;
+    }
+
+    //Combines this copy with an older one that was never written, the files
+    //this copy left out because the older one already held them are taken from it
+    ConcertState after(ConcertState older)
+    {
+        return new ConcertState(
+                this.concertName, this.concertDirectory,
+                this.customerLines != null ? this.customerLines : older.customerLines,
+                this.seatLines != null ? this.seatLines : older.seatLines,
+                this.snapshot != null ? this.snapshot : older.snapshot,
+                this.deleteSnapshot, this.journal, this.journalTicket,
+                this.priceRecords, this.forSave || older.forSave
+        );
+    }
+
+    //Writes the files, then drops the lines of the journal the files now hold.
+    //Returns the number of bytes written
+    long write() throws IOException
+    {
+        long bytes = 0;
+        if(this.customerLines != null) {
+            bytes += writeLines(new File(this.concertDirectory + File.separator + "Customers.txt"), this.customerLines);
+        }
+        if(this.seatLines != null) {
+            bytes += writeLines(new File(this.concertDirectory + File.separator + "Booked_seats.txt"), this.seatLines);
+        }
+
+        File snapshotFile = new File(this.concertDirectory + File.separator + SnapshotFile.FILE_NAME);
+        if(this.snapshot != null) {
+            SnapshotFile.write(this.snapshot, snapshotFile);
+            bytes += this.snapshot.remaining();
+        }
+        else if(this.deleteSnapshot) {
+            snapshotFile.delete();
+        }
+
+        //The prices are kept in the concert list, which is not rewritten
+        //when the journal is compacted, so they stay in the journal
+        if(this.journal != null) {
+            this.journal.compact(this.journalTicket, this.priceRecords);
+        }
+        return bytes;
+    }
+
+    private static long writeLines(File file, List<String> lines) throws IOException
+    {
+        AtomicFile.write(file, output -> {
+            for(String line : lines) {
+                output.println(line);
+            }
+        });
+        return file.length();
+    }
+
+    boolean hasCustomers()
+    {
+        return this.customerLines != null;
+    }
+
+    boolean hasSeats()
+    {
+        return this.seatLines != null;
+    }
+
+    boolean isForSave()
+    {
+        return this.forSave;
+    }
+}
@@ -0,0 +1,165 @@
+package concerthallsystem.main;
+
+import concerthallsystem.metrics.BookingMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ConcertWriter class writes saved concerts to file on a single background
+ * thread, so saving never holds up the JavaFX application thread.
+ * Saving a concert takes a main.ConcertState copy of it straight away, and queues
+ * the copy to be written. If the same concert is saved again before its copy has
+ * been written, the two copies are combined and written once, and both callers are
+ * told when it is done. Everything is written in the order it was queued, and the
+ * queue is finished before the program exits.
+ *
+ * @author Daniel Black
+ */
+
+public final class ConcertWriter
+{
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "concert-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<Concert, PendingState> QUEUED_CONCERTS = new IdentityHashMap<>();
+    private static final Map<File, PendingLines> QUEUED_FILES = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConcertWriter::finish));
+    }
+
+    private ConcertWriter()
+    {
+    }
+
+    private static class PendingState
+    {
+        private ConcertState state;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    }
+
+    private static class PendingLines
+    {
+        private List<String> lines;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    }
+
+    //Queues the concert to be saved to its folder in the directory, the
+    //result completes exceptionally if any of its files couldn't be written
+    public static CompletableFuture<Boolean> save(Concert concert, String directory)
+    {
+        return queue(concert, directory, true);
+    }
+
+    //Queues the journal of the concert to be folded into its files, without
+    //counting as a save, as the concert list is not written
+    static CompletableFuture<Boolean> compact(Concert concert, String directory)
+    {
+        return queue(concert, directory, false);
+    }
+
+    private static CompletableFuture<Boolean> queue(Concert concert, String directory, boolean forSave)
+    {
+        synchronized(QUEUED_CONCERTS) {
+            ConcertState state = concert.captureState(directory, forSave);
+            PendingState queued = QUEUED_CONCERTS.get(concert);
+            if(queued != null) {
+                if(state != null) {
+                    queued.state = queued.state != null ? state.after(queued.state) : state;
+                }
+                return queued.result;
+            }
+            PendingState pending = new PendingState();
+            pending.state = state;
+            QUEUED_CONCERTS.put(concert, pending);
+            WRITER.execute(() -> write(concert, pending));
+            return pending.result;
+        }
+    }
+
+    private static void write(Concert concert, PendingState pending)
+    {
+        ConcertState state;
+        synchronized(QUEUED_CONCERTS) {
+            QUEUED_CONCERTS.remove(concert);
+            state = pending.state;
+        }
+        if(state == null) {
+            pending.result.complete(true);
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long bytes = state.write();
+            BookingMetrics.get().recordSave(System.nanoTime() - start, bytes);
+            pending.result.complete(true);
+        }
+        catch(IOException | RuntimeException ex) {
+            BookingMetrics.get().recordSaveFailure();
+            concert.saveFailed(state);
+            pending.result.completeExceptionally(ex);
+        }
+    }
+
+    //Queues the lines to replace the file, if the file is already queued
+    //only the latest lines are written
+    public static CompletableFuture<Boolean> save(File file, List<String> lines)
+    {
+        synchronized(QUEUED_FILES) {
+            PendingLines queued = QUEUED_FILES.get(file);
+            if(queued != null) {
+                queued.lines = lines;
+                return queued.result;
+            }
+            PendingLines pending = new PendingLines();
+            pending.lines = lines;
+            QUEUED_FILES.put(file, pending);
+            WRITER.execute(() -> write(file, pending));
+            return pending.result;
+        }
+    }
+
+    private static void write(File file, PendingLines pending)
+    {
+        List<String> lines;
+        synchronized(QUEUED_FILES) {
+            QUEUED_FILES.remove(file);
+            lines = pending.lines;
+        }
+        try {
+            AtomicFile.write(file, output -> {
+                for(String line : lines) {
+                    output.println(line);
+                }
+            });
+            pending.result.complete(true);
+        }
+        catch(IOException | RuntimeException ex) {
+            BookingMetrics.get().recordSaveFailure();
+            pending.result.completeExceptionally(ex);
+        }
+    }
+
+    //Lets every queued save finish, run when the program exits
+    private static void finish()
+    {
+        WRITER.shutdown();
+        try {
+            WRITER.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,12 +5,11 @@ import concerthallsystem.exceptions.CustomerIOException;
 import java.io.File;
 import java.io.PrintWriter;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * The main.Customer class is used to represent each customer,
- * and each customer holds a list of seats that they have
- * booked in a particular concert that they are in.
+ * and each customer holds the indexes of the seats that they have
+ * booked in a particular concert that they are in, in seat order.
  * This class also allows you to get the entitlement that
  * a particular customer has, depending if they are eligible for one
  *
@@ -19,20 +18,26 @@ import java.util.regex.Pattern;
 
 public class Customer implements Comparable<Customer>
 {
-    private final List<Seat> bookedSeats;
+    private final SeatIndexSet bookedSeats = new SeatIndexSet();
     private String name_;
+    private int id_ = Seat.NO_CUSTOMER;
     private boolean goldEntitled_ = false;
     private boolean silverEntitled_ = false;
 
     public Customer(String name)
     {
         this.name_ = name;
-        this.bookedSeats = new ArrayList<>();
     }
 
     private Customer()
     {
-        this.bookedSeats = new ArrayList<>();
+    }
+
+    Customer(String name, boolean goldEntitled, boolean silverEntitled)
+    {
+        this(name);
+        this.goldEntitled_ = goldEntitled;
+        this.silverEntitled_ = silverEntitled;
     }
 
     public String getName()
@@ -40,7 +45,18 @@ public class Customer implements Comparable<Customer>
         return this.name_;
     }
 
-    public void setEntitlement(Seat seat)
+    //The customers id in its concerts main.CustomerRegistry
+    public int getId()
+    {
+        return this.id_;
+    }
+
+    void setId(int id)
+    {
+        this.id_ = id;
+    }
+
+    public synchronized void setEntitlement(Seat seat)
     {
         if(seat.getClass().getSimpleName().equals("GoldSeat")) {
             //1 in 10 chance of getting a free backstage pass
@@ -54,7 +70,7 @@ public class Customer implements Comparable<Customer>
         }
     }
 
-    public String getEntitlement()
+    public synchronized String getEntitlement()
     {
         String result = null;
         if(this.goldEntitled_) {
@@ -71,32 +87,67 @@ public class Customer implements Comparable<Customer>
         return result;
     }
 
-    public void addSeat(Seat seat)
+    synchronized boolean isGoldEntitled()
+    {
+        return this.goldEntitled_;
+    }
+
+    synchronized boolean isSilverEntitled()
+    {
+        return this.silverEntitled_;
+    }
+
+    //Puts back the entitlements recorded in a booking journal
+    synchronized void restoreEntitlements(boolean goldEntitled, boolean silverEntitled)
+    {
+        this.goldEntitled_ = goldEntitled;
+        this.silverEntitled_ = silverEntitled;
+    }
+
+    public synchronized void addSeat(Seat seat)
+    {
+        this.bookedSeats.add(seat.getIndex());
+    }
+
+    public synchronized void addSeats(List<Seat> seats)
     {
-        this.bookedSeats.add(seat);
-        this.bookedSeats.sort(null);
+        for(Seat seat : seats) {
+            this.bookedSeats.add(seat.getIndex());
+        }
     }
 
-    public void removeSeat(Seat seat)
+    public synchronized void removeSeat(Seat seat)
     {
-        this.bookedSeats.remove(seat);
-        this.bookedSeats.sort(null);
+        this.bookedSeats.remove(seat.getIndex());
     }
 
-    public boolean hasBookedASeat()
+    public synchronized boolean hasBookedASeat()
     {
         return this.bookedSeats.size() > 0;
     }
 
-    public List<Seat> getBookedSeats()
+    public synchronized int getBookedSeatCount()
+    {
+        return this.bookedSeats.size();
+    }
+
+    //Returns the indexes of the booked seats in the concerts seat array, in seat
+    //order, as a copy so the caller can use them while other threads keep booking
+    public synchronized int[] getBookedSeatIndexes()
+    {
+        return this.bookedSeats.toArray();
+    }
+
+    //The customers line in the Customers.txt file
+    public synchronized String toRecord()
     {
-        return this.bookedSeats;
+        return this.name_ + " " + this.goldEntitled_ + " " + this.silverEntitled_;
     }
 
-    public boolean save(PrintWriter output)
+    public synchronized boolean save(PrintWriter output)
     {
         try {
-            output.printf("%s %b %b%n", this.name_, this.goldEntitled_, this.silverEntitled_);
+            output.println(this.toRecord());
         }
         catch(Exception e) {
             return false;
@@ -104,40 +155,29 @@ public class Customer implements Comparable<Customer>
         return true;
     }
 
-    public static Customer load(Scanner input, File customersFile, int customerLineNum) throws CustomerIOException
+    //Reads a customer line of the form "<name> <gold entitled> <silver entitled>",
+    //the name is every token up to the first true or false
+    public static Customer load(RecordReader input, File customersFile, int customerLineNum) throws CustomerIOException
     {
         Customer temp = new Customer();
-        Pattern boolPattern = Pattern.compile("true|false|TRUE|FALSE");
         try {
-            while(input.hasNext()) {
-                if(!input.hasNext(boolPattern)) {
-                    if (temp.name_ != null) {
-                        temp.name_ += " " + input.next();
-                    }
-                    else {
-                        temp.name_ = input.next();
-                    }
-                }
-                else {
-                    if(temp.name_.length() > 0) {
-                        break;
-                    }
-                    else {
-                        throw new InputMismatchException();
-                    }
+            StringBuilder name = new StringBuilder();
+            while(input.hasNextToken() && !input.hasNextBoolean()) {
+                if(name.length() > 0) {
+                    name.append(' ');
                 }
+                name.append(input.nextToken());
+            }
+            if(name.length() == 0) {
+                throw new NoSuchElementException();
             }
+            temp.name_ = name.toString();
             temp.goldEntitled_ = input.nextBoolean();
             temp.silverEntitled_ = input.nextBoolean();
         }
         catch(NoSuchElementException ex) {
             throw new CustomerIOException(customersFile, customerLineNum);
         }
-        finally {
-            if(input.hasNextLine()) {
-                input.nextLine();
-            }
-        }
         return temp;
     }
 
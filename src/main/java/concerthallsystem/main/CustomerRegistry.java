@@ -0,0 +1,227 @@
+package concerthallsystem.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The CustomerRegistry class holds the customers of a concert, indexed by their
+ * normalized name, so "John  Smith" and "john smith" are the same customer.
+ * Customers are found through a hash index, and a sorted view of every customer
+ * is kept up to date as customers come and go, so the UI never has to sort them.
+ * All changes for one customer name happen atomically, so the registry can be used
+ * by many clerks booking seats at the same time.
+ * The registry is also the concerts table of customer ids. Every registered customer
+ * is given a small int id, the ids of customers who have gone are handed out again,
+ * so the ids stay dense, and a booked seat keeps the id of its customer, which is
+ * turned back into the customer by indexing an array, without building a key.
+ * For searching as a name is typed, every word of a name after the first is kept
+ * in a second sorted map, so "smi" finds "John Smith" as well as "Smith Jones",
+ * and a search only walks the few entries it returns, however many customers there are.
+ *
+ * @author Daniel Black
+ */
+
+public class CustomerRegistry
+{
+    private static final char WORD_SEPARATOR = '\0';
+    private final ConcurrentHashMap<String, Customer> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Customer> sorted = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Customer> laterWords = new ConcurrentSkipListMap<>();
+    private final Object idLock = new Object();
+    private volatile Customer[] byId = new Customer[16];
+    private int[] freeIds = new int[0];
+    private int nFreeIds = 0;
+    private int nextId = 0;
+
+    //Trims the name, collapses runs of whitespace into single spaces and lower cases it
+    public static String normalize(String name)
+    {
+        StringBuilder key = new StringBuilder(name.length());
+        boolean pendingSpace = false;
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(Character.isWhitespace(c)) {
+                pendingSpace = key.length() > 0;
+            }
+            else {
+                if(pendingSpace) {
+                    key.append(' ');
+                    pendingSpace = false;
+                }
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    //Returns the customer with the id, or null if no customer has it
+    public Customer get(int id)
+    {
+        Customer[] table = this.byId;
+        return id >= 0 && id < table.length ? table[id] : null;
+    }
+
+    //Gives the customer the most recently freed id, or the next unused one. The
+    //table is written to before the volatile write of byId, which publishes it
+    private void assignId(Customer customer)
+    {
+        synchronized(this.idLock) {
+            int id = this.nFreeIds > 0 ? this.freeIds[--this.nFreeIds] : this.nextId++;
+            Customer[] table = this.byId;
+            if(id >= table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[id] = customer;
+            customer.setId(id);
+            this.byId = table;
+        }
+    }
+
+    private void releaseId(Customer customer)
+    {
+        synchronized(this.idLock) {
+            Customer[] table = this.byId;
+            table[customer.getId()] = null;
+            if(this.nFreeIds == this.freeIds.length) {
+                this.freeIds = Arrays.copyOf(this.freeIds, Math.max(16, this.nFreeIds * 2));
+            }
+            this.freeIds[this.nFreeIds++] = customer.getId();
+            customer.setId(Seat.NO_CUSTOMER);
+            this.byId = table;
+        }
+    }
+
+    public Customer find(String name)
+    {
+        if(name == null) {
+            return null;
+        }
+        return this.index.get(normalize(name));
+    }
+
+    //Adds a customer read from file, returns false if
+    //a customer with the same name is already registered
+    public boolean add(Customer customer)
+    {
+        String key = normalize(customer.getName());
+        this.assignId(customer);
+        if(this.index.putIfAbsent(key, customer) != null) {
+            this.releaseId(customer);
+            return false;
+        }
+        this.addToSearch(key, customer);
+        return true;
+    }
+
+    //Finds or creates the named customer and books the seat for them
+    public Customer book(String name, Seat seat)
+    {
+        return this.index.compute(normalize(name), (key, customer) -> {
+            if(customer == null) {
+                customer = new Customer(name);
+                this.assignId(customer);
+                this.addToSearch(key, customer);
+            }
+            seat.book(customer);
+            return customer;
+        });
+    }
+
+    //Finds or creates the named customer and books every seat for them in one step.
+    //Each seat gives the entitlement its own book() would
+    public Customer bookAll(String name, List<Seat> seats)
+    {
+        return this.index.compute(normalize(name), (key, customer) -> {
+            if(customer == null) {
+                customer = new Customer(name);
+                this.assignId(customer);
+                this.addToSearch(key, customer);
+            }
+            for(Seat seat : seats) {
+                seat.setBookeeId(customer.getId());
+                customer.setEntitlement(seat);
+            }
+            customer.addSeats(seats);
+            return customer;
+        });
+    }
+
+    //Un-books the seat from the named customer, removing the
+    //customer once they have no booked seats left
+    public void unBook(String name, Seat seat)
+    {
+        this.index.computeIfPresent(normalize(name), (key, customer) -> {
+            seat.unBook(customer);
+            if(customer.hasBookedASeat()) {
+                return customer;
+            }
+            this.removeFromSearch(key);
+            this.releaseId(customer);
+            return null;
+        });
+    }
+
+    //The key of each later word is the rest of the name from that word on, followed by
+    //a separator and the whole name, so two customers sharing a word get their own entries
+    private void addToSearch(String key, Customer customer)
+    {
+        this.sorted.put(key, customer);
+        for(int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            this.laterWords.put(key.substring(i + 1) + WORD_SEPARATOR + key, customer);
+        }
+    }
+
+    private void removeFromSearch(String key)
+    {
+        this.sorted.remove(key);
+        for(int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            this.laterWords.remove(key.substring(i + 1) + WORD_SEPARATOR + key);
+        }
+    }
+
+    //Returns up to limit customers with a word of their name starting with the text,
+    //those whose whole name starts with it first, each group in name order
+    public List<Customer> search(String text, int limit)
+    {
+        String prefix = normalize(text);
+        List<Customer> matches = new ArrayList<>();
+        BitSet listed = new BitSet();
+        String end = prefix + Character.MAX_VALUE;
+        for(Customer customer : this.sorted.subMap(prefix, end).values()) {
+            if(matches.size() >= limit) {
+                return matches;
+            }
+            matches.add(customer);
+            listed.set(customer.getId());
+        }
+        for(Customer customer : this.laterWords.subMap(prefix, end).values()) {
+            if(matches.size() >= limit) {
+                break;
+            }
+            //A name such as "Smith Smith" is found more than once, but only listed once.
+            //Customers are told apart by their id, as different names can share a hash
+            if(!listed.get(customer.getId())) {
+                matches.add(customer);
+                listed.set(customer.getId());
+            }
+        }
+        return matches;
+    }
+
+    public int size()
+    {
+        return this.index.size();
+    }
+
+    //A live, read only view of the customers in name order
+    public Collection<Customer> getSortedCustomers()
+    {
+        return Collections.unmodifiableCollection(this.sorted.values());
+    }
+}
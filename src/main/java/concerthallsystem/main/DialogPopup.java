@@ -2,10 +2,18 @@ package concerthallsystem.main;
 
 import concerthallsystem.controllers.SceneController;
 import concerthallsystem.exceptions.CannotUnbookSeatException;
+import concerthallsystem.exceptions.JournalWriteException;
+import concerthallsystem.exceptions.WaitingRoomFullException;
 
-import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -16,6 +24,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.util.Pair;
@@ -33,6 +42,7 @@ public class DialogPopup extends Dialog
 {
     private GridPane grid = new GridPane();
     private SceneController sceneController;
+    private final List<Label> reportLabels = new ArrayList<>();
     private final static ButtonType CANCEL = new ButtonType("Cancel", ButtonData.CANCEL_CLOSE);
     private final static ButtonType QUERY = new ButtonType("Query", ButtonData.OK_DONE);
     private final static ButtonType OK = new ButtonType("OK", ButtonData.OK_DONE);
@@ -40,6 +50,14 @@ public class DialogPopup extends Dialog
     private final static ButtonType UNBOOK = new ButtonType("Unbook", ButtonData.YES);
     private final static ButtonType SAVE = new ButtonType("Save & Exit", ButtonData.YES);
     private final static ButtonType EXIT = new ButtonType("Exit", ButtonData.NO);
+    private final static long HOLD_MILLIS = Long.getLong("concerthallsystem.holdSeconds", 120) * 1000;
+    private final static int SEARCH_RESULTS = 50;
+    private final static long TURN_MILLIS = 2000;
+    private final static ExecutorService TURN_WAITERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "waiting-room-turn");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public DialogPopup()
     {
@@ -108,11 +126,21 @@ public class DialogPopup extends Dialog
             Label label = new Label(element);
             label.setStyle("-fx-font-size: 16px");
             nodes.add(label);
+            this.reportLabels.add(label);
         }
         this.drawGridPane(nodes, this.grid, maxCols, maxRows);
         this.getDialogPane().getButtonTypes().add(OK);
     }
 
+    //Shows a newer report in an open report dialog, a label whose
+    //text is unchanged is left alone, so only the changed values are redrawn
+    public void updateReport(List<String> elements)
+    {
+        for(int i = 0; i < elements.size() && i < this.reportLabels.size(); i++) {
+            this.reportLabels.get(i).setText(elements.get(i));
+        }
+    }
+
     public void drawQuerySeatDialog(Concert concert, int maxCols, int maxRows)
     {
         Label rowLabel = new Label("Select a Seat Row:");
@@ -127,15 +155,21 @@ public class DialogPopup extends Dialog
         ComboBox numbers = new ComboBox();
         numbers.prefWidthProperty().set(65);
 
-        for(String row : Concert.SEAT_ROWS) {
+        HallLayout layout = concert.getLayout();
+        for(String row : layout.getRowLabels()) {
             rows.getItems().add(row);
         }
-        rows.getSelectionModel().selectFirst();
 
-        for(int number : Concert.SEAT_NUMBERS) {
-            numbers.getItems().add(String.valueOf(number));
-        }
-        numbers.getSelectionModel().selectFirst();
+        //Rows can have different lengths, so the seat numbers
+        //are filled in again whenever another row is selected
+        rows.getSelectionModel().selectedIndexProperty().addListener((observable, oldRow, newRow) -> {
+            numbers.getItems().clear();
+            for(int number = 1; number <= layout.getRowLength(newRow.intValue()); number++) {
+                numbers.getItems().add(String.valueOf(number));
+            }
+            numbers.getSelectionModel().selectFirst();
+        });
+        rows.getSelectionModel().selectFirst();
 
         ObservableList<Node> nodes = FXCollections.observableArrayList();
         nodes.addAll(rowLabel, rows, numberLabel, numbers);
@@ -186,27 +220,43 @@ public class DialogPopup extends Dialog
     }
 
 
+    //Lists the customers whose names match what has been typed so far, looked up
+    //in the customer index on every key press, so only the first few matches are
+    //ever built, and the list view only draws the cells that are on screen
     public void drawQueryCustomerDialog(Concert concert, int maxCols, int maxRows)
     {
-        Label label = new Label("Select Customer to Query:");
+        Label label = new Label("Type a Customer to Query:");
         label.setStyle("-fx-font-size: 16px");
 
-        ComboBox options = new ComboBox();
-        options.prefWidthProperty().set(180);
+        TextField search = new TextField();
+        search.promptTextProperty().set("Customer name");
+
+        ListView<String> matches = new ListView<>();
+        matches.setPrefSize(180, 200);
 
-        for(Customer customer: concert.getCustomers()) {
-            options.getItems().add(customer.getName());
+        search.textProperty().addListener((observable, oldText, newText) -> {
+            List<String> names = new ArrayList<>();
+            for(Customer customer : concert.searchCustomers(newText, SEARCH_RESULTS)) {
+                names.add(customer.getName());
+            }
+            matches.getItems().setAll(names);
+            matches.getSelectionModel().selectFirst();
+        });
+        for(Customer customer : concert.searchCustomers("", SEARCH_RESULTS)) {
+            matches.getItems().add(customer.getName());
         }
-        options.getSelectionModel().selectFirst();
+        matches.getSelectionModel().selectFirst();
 
         ObservableList<Node> nodes = FXCollections.observableArrayList();
-        nodes.addAll(label, options);
+        nodes.addAll(label, search, matches);
         this.drawGridPane(nodes, this.grid, maxCols, maxRows);
         this.getDialogPane().getButtonTypes().addAll(QUERY, CANCEL);
+        Platform.runLater(search::requestFocus);
 
         this.setResultConverter(button -> {
             if(button == QUERY) {
-                return options.getSelectionModel().selectedItemProperty().get();
+                String selected = matches.getSelectionModel().getSelectedItem();
+                return selected != null ? selected : search.getText();
             }
             return null;
         });
@@ -231,7 +281,7 @@ public class DialogPopup extends Dialog
         TextField priceInput = new TextField();
         priceInput.promptTextProperty().set("00.00");
 
-        for(String section : Concert.SEAT_SECTIONS) {
+        for(String section : concert.getLayout().getSectionNames()) {
             sections.getItems().add(section);
         }
         sections.getSelectionModel().selectFirst();
@@ -253,11 +303,74 @@ public class DialogPopup extends Dialog
 
         Optional<Pair<String, String>> result = this.showAndWait();
         result.ifPresent(input -> {
-            concert.setSectionPrice(input.getKey(), Double.parseDouble(input.getValue()));
+            try {
+                concert.setSectionPrice(input.getKey(), Double.parseDouble(input.getValue()));
+            }
+            catch(JournalWriteException e) {
+                drawResultDialog(e.getMessage());
+                return;
+            }
             drawResultDialog("Changed Price of " + input.getKey() + " Section to £" + input.getValue());
         });
     }
 
+    //Asks for a section, a party size and which rows to try first, and returns
+    //the best block of free seats together the concert can find for them, or an
+    //empty list if the dialog was cancelled or no row of the section has room
+    public List<Seat> drawFindSeatsDialog(Concert concert, int maxCols, int maxRows)
+    {
+        Label sectionLabel = new Label("Select a Seat Section:");
+        sectionLabel.setStyle("-fx-font-size: 16px;");
+
+        Label sizeLabel = new Label("Input the Number of Seats:");
+        sizeLabel.setStyle("-fx-font-size: 16px;");
+
+        Label preferenceLabel = new Label("Select the Rows to Try First:");
+        preferenceLabel.setStyle("-fx-font-size: 16px;");
+
+        ComboBox sections = new ComboBox();
+        sections.prefWidthProperty().set(175);
+        for(String section : concert.getLayout().getSectionNames()) {
+            sections.getItems().add(section);
+        }
+        sections.getSelectionModel().selectFirst();
+
+        TextField sizeInput = new TextField();
+        sizeInput.promptTextProperty().set("2");
+
+        ComboBox preferences = new ComboBox();
+        preferences.prefWidthProperty().set(175);
+        preferences.getItems().addAll((Object[]) RowPreference.values());
+        preferences.getSelectionModel().selectFirst();
+
+        ObservableList<Node> nodes = FXCollections.observableArrayList();
+        nodes.addAll(sectionLabel, sections, sizeLabel, sizeInput, preferenceLabel, preferences);
+        this.drawGridPane(nodes, this.grid, maxCols, maxRows);
+        this.getDialogPane().getButtonTypes().addAll(QUERY, CANCEL);
+
+        this.setResultConverter(button -> {
+            if(button == QUERY) {
+                try {
+                    return concert.findBestSeats(
+                            sections.getSelectionModel().getSelectedItem().toString(),
+                            Integer.parseInt(sizeInput.getText().trim()),
+                            (RowPreference) preferences.getSelectionModel().getSelectedItem()
+                    );
+                }
+                catch(NumberFormatException e) {
+                    return null;
+                }
+            }
+            return null;
+        });
+
+        Optional<List<Seat>> result = this.showAndWait();
+        if(result.isPresent() && result.get().isEmpty()) {
+            drawResultDialog("No row of that section has that many free seats together");
+        }
+        return result.orElse(Collections.emptyList());
+    }
+
     public void drawSavePromptDialog(String message, Concert concert)
     {
         Label label = new Label(message);
@@ -278,13 +391,9 @@ public class DialogPopup extends Dialog
 
         Optional<String> result = this.showAndWait();
         if(result.get().equals("Save & Exit")) {
-            try {
-                this.sceneController.getEventController().getConcertController().saveCurrentConcert();
-            }
-            catch (FileNotFoundException e) {
-                e.printStackTrace();
-            }
-            this.sceneController.displaySaveSuccessfulDialog(concert);
+            this.sceneController.displaySaveResult(
+                    concert, this.sceneController.getEventController().getConcertController().saveCurrentConcert()
+            );
             this.sceneController.setScene("MainMenu");
         }
         else if(result.get().equals("Exit")) {
@@ -301,8 +410,15 @@ public class DialogPopup extends Dialog
         this.getDialogPane().getButtonTypes().add(OK);
     }
 
-    public void drawBookSeatDialog(Concert concert, Seat seat, Node seatIcon)
+    //The seat is held while the dialog is open, so no one else can book it in the
+    //meantime, and the hold is given back if the dialog is cancelled
+    public void drawBookSeatDialog(Concert concert, Seat seat, WaitingRoom waitingRoom)
     {
+        SeatHold hold = concert.holdSeat(seat, HOLD_MILLIS);
+        if(hold == null) {
+            drawResultDialog("Seat (" + seat + ") has just been booked or held by someone else");
+            return;
+        }
         this.setHeaderText("Book Seat (" + seat + ")");
         Label label = new Label("Input name to book this seat:");
         label.setStyle("-fx-font-size: 16px;");
@@ -324,9 +440,23 @@ public class DialogPopup extends Dialog
         });
 
         Optional<String> result = this.showAndWait();
-        result.ifPresent(input -> {
-            concert.bookSeat(seat, capitalize(input));
-            seatIcon.setStyle("-fx-background-color: linear-gradient(#FF0000, #D10000);");
+        if(!result.isPresent()) {
+            concert.releaseHold(hold);
+        }
+        result.ifPresent(input -> awaitTurn(waitingRoom, () -> concert.releaseHold(hold), ticket -> {
+            boolean booked;
+            try(ticket) {
+                //If the hold ran out while the name was typed, the seat may still be free
+                booked = concert.bookHeldSeat(hold, capitalize(input)) || concert.bookSeat(seat, capitalize(input));
+            }
+            catch(JournalWriteException e) {
+                drawResultDialog(e.getMessage());
+                return;
+            }
+            if(!booked) {
+                drawResultDialog("The hold on seat (" + seat + ") ran out and it has since been taken");
+                return;
+            }
             if(concert.getCustomerEntitlement(seat) != null) {
                 drawResultDialog(
                         capitalize(input) + " has booked seat "
@@ -339,10 +469,99 @@ public class DialogPopup extends Dialog
                                 + "(" + seat + ")"
                 );
             }
+        }));
+    }
+
+    //Books a group of seats for one customer, if any of them has been
+    //booked since it was selected then none of them are booked
+    public void drawBookSeatsDialog(Concert concert, List<Seat> seats, WaitingRoom waitingRoom)
+    {
+        this.setHeaderText("Book " + seats.size() + " Seats");
+        Label label = new Label("Input name to book these seats:");
+        label.setStyle("-fx-font-size: 16px;");
+
+        TextField nameInput = new TextField();
+        nameInput.promptTextProperty().set("Input fullname here...");
+
+        ObservableList<Node> nodes = FXCollections.observableArrayList();
+        nodes.addAll(label, nameInput);
+        this.drawGridPane(nodes, this.grid, 1, 2);
+        this.getDialogPane().getButtonTypes().addAll(BOOK, CANCEL);
+
+        this.setResultConverter(button -> {
+            if(button == BOOK) {
+                if(nameInput.getText().length() > 0 && nameInput.getText().length() < 30)
+                    return nameInput.getText();
+            }
+            return null;
+        });
+
+        Optional<String> result = this.showAndWait();
+        result.ifPresent(input -> awaitTurn(waitingRoom, () -> {}, ticket -> {
+            String name = capitalize(input);
+            boolean allBooked;
+            try(ticket) {
+                allBooked = concert.bookSeats(seats, name);
+            }
+            catch(JournalWriteException e) {
+                drawResultDialog(e.getMessage());
+                return;
+            }
+            if(allBooked) {
+                StringBuilder booked = new StringBuilder(name + " has booked " + seats.size() + " seats:\n");
+                for(Seat seat : seats) {
+                    booked.append("(").append(seat).append(") ");
+                }
+                drawResultDialog(booked.toString().trim());
+            }
+            else {
+                drawResultDialog("One or more of the selected seats has already been booked,\nso none of them were booked");
+            }
+        }));
+    }
+
+    //Joins the waiting room in front of the booking engine and waits up to TURN_MILLIS
+    //for a turn on a background thread, so the window stays responsive. Once let in, the
+    //booking is passed the ticket on the FX thread, and must close it once it is made.
+    //If the booking is turned away or its turn does not come in time, the clerk is told
+    //why and turnedAway is run instead
+    private static void awaitTurn(WaitingRoom waitingRoom, Runnable turnedAway, Consumer<WaitingRoom.Ticket> booking)
+    {
+        WaitingRoom.Ticket ticket;
+        try {
+            ticket = waitingRoom.join();
+        }
+        catch(WaitingRoomFullException e) {
+            turnedAway.run();
+            drawResultDialog(e.getMessage());
+            return;
+        }
+        TURN_WAITERS.execute(() -> {
+            boolean admitted = false;
+            try {
+                admitted = ticket.awaitTurn(TURN_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(admitted) {
+                Platform.runLater(() -> booking.accept(ticket));
+                return;
+            }
+            long position = ticket.getPosition();
+            ticket.close();
+            int inside = waitingRoom.getInsideCount();
+            Platform.runLater(() -> {
+                turnedAway.run();
+                drawResultDialog(
+                        "The booking engine is busy with " + inside + " bookings and " + position
+                                + " more were queuing ahead of this one,\nso it has not been made, try again in a moment"
+                );
+            });
         });
     }
 
-    public void drawUnBookSeatDialog(Concert concert, Seat seat, Node seatIcon)
+    public void drawUnBookSeatDialog(Concert concert, Seat seat)
     {
         this.setHeaderText("Unbook Seat (" + seat + ")");
         Label label = new Label("Are you sure you want to unbook this seat?");
@@ -364,14 +583,8 @@ public class DialogPopup extends Dialog
         result.ifPresent(input -> {
             try {
                 concert.unBookSeat(seat);
-                if(seat.getClass().getSimpleName().equals("GoldSeat")) {
-                    seatIcon.setStyle("-fx-background-color: linear-gradient(#FFD700, #EDC800);");
-                }
-                else {
-                    seatIcon.setStyle("-fx-background-color: linear-gradient(#C0C0C0, #ABABAB);");
-                }
             }
-            catch(CannotUnbookSeatException e) {
+            catch(CannotUnbookSeatException | JournalWriteException e) {
                 drawResultDialog(e.getMessage());
             }
         });
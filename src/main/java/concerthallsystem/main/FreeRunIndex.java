@@ -0,0 +1,352 @@
+package concerthallsystem.main;
+
+/**
+ * The FreeRunIndex class finds blocks of free seats next to each other without
+ * looking at every seat. Each row has a segment tree that keeps, for every range
+ * of its seats, the longest run of free seats in the range and the free runs at
+ * either end of it. Each section has a second tree over its rows holding the
+ * longest run of every row, so the best row with room for a party is found by
+ * going down one tree, and the best place in that row by going down another.
+ * Booking or freeing a seat updates one leaf of each tree, and a search
+ * takes a handful of steps down each, logarithmic in the size of the hall.
+ * Like the seats themselves, a section's trees are guarded by its section lock.
+ *
+ * @author Daniel Black
+ */
+
+public class FreeRunIndex
+{
+    private final HallLayout layout;
+    private final RowTree[] rows;
+    private final SectionTree[] sections;
+    private final int[] positionInSection;
+
+    public FreeRunIndex(HallLayout layout)
+    {
+        this.layout = layout;
+        this.rows = new RowTree[layout.getRowCount()];
+        this.positionInSection = new int[layout.getRowCount()];
+        for(int row = 0; row < this.rows.length; row++) {
+            this.rows[row] = new RowTree(layout.getRowLength(row));
+        }
+        this.sections = new SectionTree[layout.getSectionCount()];
+        for(int section = 0; section < this.sections.length; section++) {
+            int[] sectionRows = layout.getSectionRows(section);
+            int[] longest = new int[sectionRows.length];
+            for(int i = 0; i < sectionRows.length; i++) {
+                this.positionInSection[sectionRows[i]] = i;
+                longest[i] = layout.getRowLength(sectionRows[i]);
+            }
+            this.sections[section] = new SectionTree(sectionRows, longest);
+        }
+    }
+
+    public void book(int seatIndex)
+    {
+        this.update(seatIndex, false);
+    }
+
+    public void free(int seatIndex)
+    {
+        this.update(seatIndex, true);
+    }
+
+    private void update(int seatIndex, boolean free)
+    {
+        int row = this.layout.getRowOf(seatIndex);
+        RowTree tree = this.rows[row];
+        tree.set(seatIndex - this.layout.getFirstSeatIndex(row), free);
+        this.sections[this.layout.getRowSection(row)].set(this.positionInSection[row], tree.longestRun());
+    }
+
+    //Returns the index of the first seat of the best block of partySize free seats
+    //next to each other in the section, or -1 if no row has room. The row is picked
+    //by the preference, and within it the block closest to the middle of the row
+    public int findBlock(int section, int partySize, RowPreference preference)
+    {
+        if(partySize < 1) {
+            return -1;
+        }
+        SectionTree sectionTree = this.sections[section];
+        int position;
+        switch(preference) {
+            case BACK:
+                position = sectionTree.lastFit(sectionTree.size() - 1, partySize);
+                break;
+            case MIDDLE:
+                int middle = (sectionTree.size() - 1) / 2;
+                int after = sectionTree.firstFit(middle, partySize);
+                int before = middle > 0 ? sectionTree.lastFit(middle - 1, partySize) : -1;
+                position = closest(middle, after, before);
+                break;
+            default:
+                position = sectionTree.firstFit(0, partySize);
+                break;
+        }
+        if(position < 0) {
+            return -1;
+        }
+        int row = sectionTree.rowAt(position);
+        RowTree tree = this.rows[row];
+        int middle = (tree.length - partySize) / 2;
+        int after = tree.firstFit(middle, partySize);
+        int before = middle > 0 ? tree.lastFit(middle - 1, partySize) : -1;
+        return this.layout.getFirstSeatIndex(row) + closest(middle, after, before);
+    }
+
+    //Returns whichever of the two found positions is nearer the target, or -1 if neither was found
+    private static int closest(int target, int after, int before)
+    {
+        if(after < 0) {
+            return before;
+        }
+        if(before < 0) {
+            return after;
+        }
+        return after - target <= target - before ? after : before;
+    }
+
+    /**
+     * The segment tree of one row. Node 1 covers the whole row and the children
+     * of node n are 2n and 2n + 1, covering the left and right halves of its seats.
+     */
+    private static final class RowTree
+    {
+        private final int length;
+        private final int[] prefix;
+        private final int[] suffix;
+        private final int[] longest;
+        private int carry;
+
+        RowTree(int length)
+        {
+            this.length = length;
+            int nodes = 4 * Math.max(1, length);
+            this.prefix = new int[nodes];
+            this.suffix = new int[nodes];
+            this.longest = new int[nodes];
+            if(length > 0) {
+                this.build(1, 0, length);
+            }
+        }
+
+        int longestRun()
+        {
+            return this.length > 0 ? this.longest[1] : 0;
+        }
+
+        private void build(int node, int lo, int hi)
+        {
+            int size = hi - lo;
+            this.prefix[node] = size;
+            this.suffix[node] = size;
+            this.longest[node] = size;
+            if(size > 1) {
+                int mid = (lo + hi) >>> 1;
+                this.build(2 * node, lo, mid);
+                this.build(2 * node + 1, mid, hi);
+            }
+        }
+
+        void set(int position, boolean free)
+        {
+            this.set(1, 0, this.length, position, free ? 1 : 0);
+        }
+
+        private void set(int node, int lo, int hi, int position, int value)
+        {
+            if(hi - lo == 1) {
+                this.prefix[node] = value;
+                this.suffix[node] = value;
+                this.longest[node] = value;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int left = 2 * node;
+            int right = left + 1;
+            if(position < mid) {
+                this.set(left, lo, mid, position, value);
+            }
+            else {
+                this.set(right, mid, hi, position, value);
+            }
+            int leftSize = mid - lo;
+            int rightSize = hi - mid;
+            this.prefix[node] = this.prefix[left] == leftSize ? leftSize + this.prefix[right] : this.prefix[left];
+            this.suffix[node] = this.suffix[right] == rightSize ? rightSize + this.suffix[left] : this.suffix[right];
+            this.longest[node] = Math.max(
+                    Math.max(this.longest[left], this.longest[right]), this.suffix[left] + this.prefix[right]
+            );
+        }
+
+        //Returns the first position at or after from where run free seats start, or -1.
+        //The tree is walked left to right, carrying the free run that ends just
+        //before the current node, and a node is only entered if a block could
+        //start inside it or run into it
+        int firstFit(int from, int run)
+        {
+            if(this.length == 0 || this.longest[1] < run) {
+                return -1;
+            }
+            this.carry = 0;
+            return this.firstFit(1, 0, this.length, from, run);
+        }
+
+        private int firstFit(int node, int lo, int hi, int from, int run)
+        {
+            if(hi <= from) {
+                return -1;
+            }
+            if(lo >= from) {
+                if(this.carry + this.prefix[node] >= run) {
+                    return lo - this.carry;
+                }
+                if(this.longest[node] < run) {
+                    this.carry = this.prefix[node] == hi - lo ? this.carry + hi - lo : this.suffix[node];
+                    return -1;
+                }
+            }
+            int mid = (lo + hi) >>> 1;
+            int found = this.firstFit(2 * node, lo, mid, from, run);
+            if(found >= 0) {
+                return found;
+            }
+            return this.firstFit(2 * node + 1, mid, hi, from, run);
+        }
+
+        //Returns the last position at or before to where run free seats start, or -1,
+        //by walking the tree right to left in the same way as firstFit
+        int lastFit(int to, int run)
+        {
+            if(this.length == 0 || this.longest[1] < run) {
+                return -1;
+            }
+            this.carry = 0;
+            int end = this.lastEnd(1, 0, this.length, to + run, run);
+            return end < 0 ? -1 : end - run;
+        }
+
+        //Returns the end, exclusive, of the last block ending at or before limit
+        private int lastEnd(int node, int lo, int hi, int limit, int run)
+        {
+            if(lo >= limit) {
+                return -1;
+            }
+            if(hi <= limit) {
+                if(this.carry + this.suffix[node] >= run) {
+                    return hi + this.carry;
+                }
+                if(this.longest[node] < run) {
+                    this.carry = this.suffix[node] == hi - lo ? this.carry + hi - lo : this.prefix[node];
+                    return -1;
+                }
+            }
+            int mid = (lo + hi) >>> 1;
+            int found = this.lastEnd(2 * node + 1, mid, hi, limit, run);
+            if(found >= 0) {
+                return found;
+            }
+            return this.lastEnd(2 * node, lo, mid, limit, run);
+        }
+    }
+
+    /**
+     * A max tree over the rows of one section, in the order the layout lists them,
+     * holding the longest run of free seats in each row.
+     */
+    private static final class SectionTree
+    {
+        private final int[] rows;
+        private final int[] max;
+
+        SectionTree(int[] rows, int[] longest)
+        {
+            this.rows = rows;
+            this.max = new int[4 * Math.max(1, rows.length)];
+            if(rows.length > 0) {
+                this.build(1, 0, rows.length, longest);
+            }
+        }
+
+        int size()
+        {
+            return this.rows.length;
+        }
+
+        int rowAt(int position)
+        {
+            return this.rows[position];
+        }
+
+        private void build(int node, int lo, int hi, int[] longest)
+        {
+            if(hi - lo == 1) {
+                this.max[node] = longest[lo];
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            this.build(2 * node, lo, mid, longest);
+            this.build(2 * node + 1, mid, hi, longest);
+            this.max[node] = Math.max(this.max[2 * node], this.max[2 * node + 1]);
+        }
+
+        void set(int position, int longest)
+        {
+            this.set(1, 0, this.rows.length, position, longest);
+        }
+
+        private void set(int node, int lo, int hi, int position, int longest)
+        {
+            if(hi - lo == 1) {
+                this.max[node] = longest;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if(position < mid) {
+                this.set(2 * node, lo, mid, position, longest);
+            }
+            else {
+                this.set(2 * node + 1, mid, hi, position, longest);
+            }
+            this.max[node] = Math.max(this.max[2 * node], this.max[2 * node + 1]);
+        }
+
+        //Returns the first row position at or after from with a run of at least run, or -1
+        int firstFit(int from, int run)
+        {
+            return this.rows.length == 0 ? -1 : this.firstFit(1, 0, this.rows.length, from, run);
+        }
+
+        private int firstFit(int node, int lo, int hi, int from, int run)
+        {
+            if(hi <= from || this.max[node] < run) {
+                return -1;
+            }
+            if(hi - lo == 1) {
+                return lo;
+            }
+            int mid = (lo + hi) >>> 1;
+            int found = this.firstFit(2 * node, lo, mid, from, run);
+            return found >= 0 ? found : this.firstFit(2 * node + 1, mid, hi, from, run);
+        }
+
+        //Returns the last row position at or before to with a run of at least run, or -1
+        int lastFit(int to, int run)
+        {
+            return this.rows.length == 0 ? -1 : this.lastFit(1, 0, this.rows.length, to, run);
+        }
+
+        private int lastFit(int node, int lo, int hi, int to, int run)
+        {
+            if(lo > to || this.max[node] < run) {
+                return -1;
+            }
+            if(hi - lo == 1) {
+                return lo;
+            }
+            int mid = (lo + hi) >>> 1;
+            int found = this.lastFit(2 * node + 1, mid, hi, to, run);
+            return found >= 0 ? found : this.lastFit(2 * node, lo, mid, to, run);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package concerthallsystem.main;
+
+import concerthallsystem.exceptions.LayoutIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The HallLayout class describes the rows, seats and seat sections of a venue.
+ * Every seat in a layout has an index, rows are numbered in the order they are
+ * defined and the seats of each row follow on from the row before, so a row and
+ * seat number can be turned into an index with one lookup and one addition.
+ * Rows do not need to be the same length, and a layout can have any number of sections.
+ * Layouts are read from definition files in the Layouts directory, where each line
+ * gives the section, the row label and the number of seats in that row, e.g.
+ * "Gold A 10". Lines starting with # are ignored.
+ * A layout holds no booking state, so one instance is shared by every concert that uses it.
+ *
+ * @author Daniel Black
+ */
+
+public class HallLayout
+{
+    public static final String DEFAULT_NAME = "Default";
+    public static final String LAYOUT_DIRECTORY = "Layouts";
+    public static final HallLayout DEFAULT = createDefault();
+    private static final Map<String, HallLayout> LOADED_LAYOUTS = new ConcurrentHashMap<>();
+
+    private final String name_;
+    private final String[] sectionNames;
+    private final int[] sectionSizes;
+    private final int[][] sectionRows;
+    private final String[] rowLabels;
+    private final int[] rowSections;
+    private final int[] rowOffsets;
+    private final Map<String, Integer> rowIndexes;
+
+    private HallLayout(String name, List<String> sections, List<String> rows, List<Integer> sectionOfRow, List<Integer> rowLengths)
+    {
+        this.name_ = name;
+        this.sectionNames = sections.toArray(new String[0]);
+        this.rowLabels = rows.toArray(new String[0]);
+        this.rowSections = new int[rows.size()];
+        this.rowOffsets = new int[rows.size() + 1];
+        this.rowIndexes = new HashMap<>(rows.size() * 2);
+        this.sectionSizes = new int[sections.size()];
+
+        int[] rowsPerSection = new int[sections.size()];
+        for(int i = 0; i < rows.size(); i++) {
+            this.rowSections[i] = sectionOfRow.get(i);
+            this.rowOffsets[i + 1] = this.rowOffsets[i] + rowLengths.get(i);
+            this.rowIndexes.put(this.rowLabels[i].toUpperCase(), i);
+            this.sectionSizes[this.rowSections[i]] += rowLengths.get(i);
+            rowsPerSection[this.rowSections[i]]++;
+        }
+
+        this.sectionRows = new int[sections.size()][];
+        for(int i = 0; i < sections.size(); i++) {
+            this.sectionRows[i] = new int[rowsPerSection[i]];
+            rowsPerSection[i] = 0;
+        }
+        for(int i = 0; i < rows.size(); i++) {
+            this.sectionRows[this.rowSections[i]][rowsPerSection[this.rowSections[i]]++] = i;
+        }
+    }
+
+    //The original 90 seat hall, three sections of three rows with ten seats each
+    private static HallLayout createDefault()
+    {
+        List<String> sections = List.of("Gold", "Silver", "Bronze");
+        List<String> rows = new ArrayList<>();
+        List<Integer> sectionOfRow = new ArrayList<>();
+        List<Integer> rowLengths = new ArrayList<>();
+        String[] rowLabels = {"A", "B", "C", "D", "E", "F", "G", "H", "I"};
+        for(int i = 0; i < rowLabels.length; i++) {
+            rows.add(rowLabels[i]);
+            sectionOfRow.add(i / 3);
+            rowLengths.add(10);
+        }
+        return new HallLayout(DEFAULT_NAME, sections, rows, sectionOfRow, rowLengths);
+    }
+
+    //Returns the named layout, reading its definition file from the layout
+    //directory the first time it is asked for
+    public static HallLayout forName(String name, File layoutDirectory) throws LayoutIOException
+    {
+        if(name == null || name.equals(DEFAULT_NAME)) {
+            return DEFAULT;
+        }
+        File layoutFile = new File(layoutDirectory + File.separator + name + ".txt");
+        return LOADED_LAYOUTS.computeIfAbsent(
+                layoutFile.getAbsolutePath(), path -> load(name, layoutFile)
+        );
+    }
+
+    private static HallLayout load(String name, File layoutFile) throws LayoutIOException
+    {
+        List<String> sections = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        List<Integer> sectionOfRow = new ArrayList<>();
+        List<Integer> rowLengths = new ArrayList<>();
+        Map<String, Integer> sectionIndexes = new HashMap<>();
+        Map<String, Integer> seenRows = new HashMap<>();
+
+        if(!layoutFile.canRead()) {
+            throw new LayoutIOException(layoutFile, "could not find layout " + name);
+        }
+        try(RecordReader input = new RecordReader(layoutFile)) {
+            while(input.nextLine()) {
+                int lineNum = input.getLineNumber();
+                if(input.isBlank() || input.nextTokenStartsWith('#')) {
+                    continue;
+                }
+
+                String section = input.nextToken();
+                String row = input.hasNextToken() ? input.nextToken() : null;
+                int rowLength;
+                try {
+                    rowLength = input.nextInt();
+                }
+                catch(NumberFormatException | NoSuchElementException ex) {
+                    throw new LayoutIOException(layoutFile, lineNum);
+                }
+                if(rowLength < 1 || input.hasNextToken() || seenRows.put(row.toUpperCase(), lineNum) != null) {
+                    throw new LayoutIOException(layoutFile, lineNum);
+                }
+
+                Integer sectionIndex = sectionIndexes.get(section);
+                if(sectionIndex == null) {
+                    sectionIndex = sections.size();
+                    sectionIndexes.put(section, sectionIndex);
+                    sections.add(section);
+                }
+                rows.add(row);
+                sectionOfRow.add(sectionIndex);
+                rowLengths.add(rowLength);
+            }
+        }
+        catch(IOException io) {
+            throw new LayoutIOException(layoutFile, io.getMessage());
+        }
+
+        if(rows.isEmpty()) {
+            throw new LayoutIOException(layoutFile, "layout " + name + " has no rows");
+        }
+        return new HallLayout(name, sections, rows, sectionOfRow, rowLengths);
+    }
+
+    public String getName()
+    {
+        return this.name_;
+    }
+
+    public int getTotalSeats()
+    {
+        return this.rowOffsets[this.rowOffsets.length - 1];
+    }
+
+    public int getSectionCount()
+    {
+        return this.sectionNames.length;
+    }
+
+    public String[] getSectionNames()
+    {
+        return this.sectionNames.clone();
+    }
+
+    public String getSectionName(int section)
+    {
+        return this.sectionNames[section];
+    }
+
+    //Returns the index of the named section, or -1 if the layout has no such section
+    public int getSectionIndex(String sectionName)
+    {
+        for(int i = 0; i < this.sectionNames.length; i++) {
+            if(this.sectionNames[i].equals(sectionName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int[] getSectionSizes()
+    {
+        return this.sectionSizes.clone();
+    }
+
+    public int getSectionSize(int section)
+    {
+        return this.sectionSizes[section];
+    }
+
+    //Returns the rows belonging to a section, in the order they were defined
+    public int[] getSectionRows(int section)
+    {
+        return this.sectionRows[section].clone();
+    }
+
+    public int getRowCount()
+    {
+        return this.rowLabels.length;
+    }
+
+    public String[] getRowLabels()
+    {
+        return this.rowLabels.clone();
+    }
+
+    public String getRowLabel(int row)
+    {
+        return this.rowLabels[row];
+    }
+
+    //Returns the index of the labelled row, or -1 if the layout has no such row
+    public int getRowIndex(String rowLabel)
+    {
+        Integer row = this.rowIndexes.get(rowLabel.toUpperCase());
+        return row != null ? row : -1;
+    }
+
+    public int getRowLength(int row)
+    {
+        return this.rowOffsets[row + 1] - this.rowOffsets[row];
+    }
+
+    public int getRowSection(int row)
+    {
+        return this.rowSections[row];
+    }
+
+    //The seat index of the first seat in the row
+    public int getFirstSeatIndex(int row)
+    {
+        return this.rowOffsets[row];
+    }
+
+    //Returns the seat index of a row and seat number, or -1 if there is no such seat
+    public int getSeatIndex(String rowLabel, int seatNum)
+    {
+        int row = this.getRowIndex(rowLabel);
+        if(row < 0 || seatNum < 1 || seatNum > this.getRowLength(row)) {
+            return -1;
+        }
+        return this.rowOffsets[row] + seatNum - 1;
+    }
+
+    //Finds the row a seat index belongs to with a binary search over the row offsets
+    public int getRowOf(int seatIndex)
+    {
+        int low = 0;
+        int high = this.rowLabels.length - 1;
+        while(low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if(this.rowOffsets[mid] <= seatIndex) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public int getSectionOf(int seatIndex)
+    {
+        return this.rowSections[this.getRowOf(seatIndex)];
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name_;
+    }
+}
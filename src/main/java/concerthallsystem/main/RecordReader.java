@@ -0,0 +1,346 @@
+package concerthallsystem.main;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * The RecordReader class reads the concert, seat, customer and layout files
+ * one line at a time through a buffered file channel, and splits each line
+ * into whitespace separated tokens by hand instead of using regular expressions.
+ * Numbers, booleans and dates are recognised straight from the bytes of the line,
+ * only the tokens that are kept as text, such as names, are turned into Strings.
+ * Text is decoded with the platform charset, the same charset the files are written with,
+ * unless the file is read with a charset of its own.
+ *
+ * @author Daniel Black
+ */
+
+public class RecordReader implements Closeable
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final Charset charset;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private int lineNumber;
+    private int position;
+    private boolean endOfFile;
+    private boolean lineTerminated;
+
+    public RecordReader(File file) throws IOException
+    {
+        this(file, Charset.defaultCharset());
+    }
+
+    public RecordReader(File file, Charset charset) throws IOException
+    {
+        this.charset = charset;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    //Moves on to the next line of the file, returns false at the end of the file
+    public boolean nextLine() throws IOException
+    {
+        this.lineLength = 0;
+        this.position = 0;
+        this.lineTerminated = false;
+        boolean readAnything = false;
+        while(true) {
+            if(!this.buffer.hasRemaining()) {
+                if(this.endOfFile || !this.fill()) {
+                    if(readAnything) {
+                        break;
+                    }
+                    return false;
+                }
+            }
+            readAnything = true;
+            byte[] bytes = this.buffer.array();
+            int start = this.buffer.position();
+            int end = this.buffer.limit();
+            int i = start;
+            while(i < end && bytes[i] != '\n') {
+                i++;
+            }
+            this.append(bytes, start, i - start);
+            if(i < end) {
+                this.buffer.position(i + 1);
+                this.lineTerminated = true;
+                break;
+            }
+            this.buffer.position(end);
+        }
+        if(this.lineLength > 0 && this.line[this.lineLength - 1] == '\r') {
+            this.lineLength--;
+        }
+        this.lineNumber++;
+        return true;
+    }
+
+    private boolean fill() throws IOException
+    {
+        this.buffer.clear();
+        int read = this.channel.read(this.buffer);
+        this.buffer.flip();
+        if(read < 0) {
+            this.endOfFile = true;
+            return false;
+        }
+        return read > 0 || this.fill();
+    }
+
+    private void append(byte[] bytes, int offset, int length)
+    {
+        if(this.lineLength + length > this.line.length) {
+            byte[] grown = new byte[Math.max(this.line.length * 2, this.lineLength + length)];
+            System.arraycopy(this.line, 0, grown, 0, this.lineLength);
+            this.line = grown;
+        }
+        System.arraycopy(bytes, offset, this.line, this.lineLength, length);
+        this.lineLength += length;
+    }
+
+    //Checks if the current line ended with a line break, the last
+    //line of a file that was cut short while writing doesn't
+    public boolean isLineTerminated()
+    {
+        return this.lineTerminated;
+    }
+
+    public int getLineNumber()
+    {
+        return this.lineNumber;
+    }
+
+    public boolean isBlank()
+    {
+        return !this.hasNextToken();
+    }
+
+    public boolean hasNextToken()
+    {
+        this.skipWhitespace();
+        return this.position < this.lineLength;
+    }
+
+    public String nextToken()
+    {
+        int start = this.tokenStart();
+        this.position = this.tokenEnd(start);
+        return new String(this.line, start, this.position - start, this.charset);
+    }
+
+    //Returns the rest of the line without its leading and trailing whitespace
+    public String rest()
+    {
+        int start = this.tokenStart();
+        int end = this.lineLength;
+        while(end > start && isWhitespace(this.line[end - 1])) {
+            end--;
+        }
+        this.position = this.lineLength;
+        return new String(this.line, start, end - start, this.charset);
+    }
+
+    public int nextInt()
+    {
+        int start = this.tokenStart();
+        int end = this.tokenEnd(start);
+        int i = start;
+        boolean negative = this.line[i] == '-';
+        if(negative || this.line[i] == '+') {
+            i++;
+        }
+        if(i == end || end - i > 9) {
+            throw new NumberFormatException("Not a number on line " + this.lineNumber);
+        }
+        int value = 0;
+        for(; i < end; i++) {
+            int digit = this.line[i] - '0';
+            if(digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number on line " + this.lineNumber);
+            }
+            value = value * 10 + digit;
+        }
+        this.position = end;
+        return negative ? -value : value;
+    }
+
+    //Reads a plain decimal such as 12.50, anything more unusual
+    //is left for Double.parseDouble to deal with
+    public double nextDouble()
+    {
+        int start = this.tokenStart();
+        int end = this.tokenEnd(start);
+        int i = start;
+        boolean negative = this.line[i] == '-';
+        if(negative || this.line[i] == '+') {
+            i++;
+        }
+        long digits = 0;
+        int nDigits = 0;
+        int fractionDigits = -1;
+        for(; i < end; i++) {
+            byte b = this.line[i];
+            if(b >= '0' && b <= '9') {
+                digits = digits * 10 + (b - '0');
+                nDigits++;
+                if(fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            }
+            else if(b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            }
+            else {
+                break;
+            }
+        }
+        double value;
+        if(i == end && nDigits > 0 && nDigits <= 15) {
+            value = fractionDigits > 0 ? digits / POWERS_OF_TEN[fractionDigits] : digits;
+            value = negative ? -value : value;
+        }
+        else {
+            value = Double.parseDouble(new String(this.line, start, end - start, this.charset));
+        }
+        this.position = end;
+        return value;
+    }
+
+    public boolean hasNextDouble()
+    {
+        if(!this.hasNextToken()) {
+            return false;
+        }
+        int start = this.position;
+        int end = this.tokenEnd(start);
+        int i = start;
+        if(this.line[i] == '-' || this.line[i] == '+') {
+            i++;
+        }
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for(; i < end; i++) {
+            byte b = this.line[i];
+            if(b >= '0' && b <= '9') {
+                seenDigit = true;
+            }
+            else if(b == '.' && !seenPoint) {
+                seenPoint = true;
+            }
+            else {
+                return false;
+            }
+        }
+        return seenDigit;
+    }
+
+    public boolean nextTokenStartsWith(char c)
+    {
+        return this.hasNextToken() && this.line[this.position] == c;
+    }
+
+    //Checks if the next token is "true" or "false", ignoring case
+    public boolean hasNextBoolean()
+    {
+        if(!this.hasNextToken()) {
+            return false;
+        }
+        int length = this.tokenEnd(this.position) - this.position;
+        return (length == 4 && this.tokenMatches("true")) || (length == 5 && this.tokenMatches("false"));
+    }
+
+    public boolean nextBoolean()
+    {
+        if(!this.hasNextBoolean()) {
+            throw new NoSuchElementException("Not a boolean on line " + this.lineNumber);
+        }
+        boolean value = this.tokenMatches("true");
+        this.position = this.tokenEnd(this.position);
+        return value;
+    }
+
+    //Checks if the next token is a date in the form yyyy-mm-dd
+    public boolean hasNextDate()
+    {
+        if(!this.hasNextToken() || this.tokenEnd(this.position) - this.position != 10) {
+            return false;
+        }
+        for(int i = 0; i < 10; i++) {
+            byte b = this.line[this.position + i];
+            if(i == 4 || i == 7) {
+                if(b != '-') {
+                    return false;
+                }
+            }
+            else if(b < '0' || b > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tokenMatches(String lowerCaseWord)
+    {
+        for(int i = 0; i < lowerCaseWord.length(); i++) {
+            int b = this.line[this.position + i];
+            if(b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if(b != lowerCaseWord.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int tokenStart()
+    {
+        if(!this.hasNextToken()) {
+            throw new NoSuchElementException("No more tokens on line " + this.lineNumber);
+        }
+        return this.position;
+    }
+
+    private int tokenEnd(int start)
+    {
+        int end = start;
+        while(end < this.lineLength && !isWhitespace(this.line[end])) {
+            end++;
+        }
+        return end;
+    }
+
+    private void skipWhitespace()
+    {
+        while(this.position < this.lineLength && isWhitespace(this.line[this.position])) {
+            this.position++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+}
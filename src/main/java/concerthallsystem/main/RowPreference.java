@@ -0,0 +1,15 @@
+package concerthallsystem.main;
+
+/**
+ * The RowPreference enum says which rows of a section to look in first when
+ * looking for seats together, FRONT starts from the first row of the section as
+ * it is listed in the hall layout, BACK from the last row, and MIDDLE from the
+ * row in the middle of the section, working outwards.
+ *
+ * @author Daniel Black
+ */
+
+public enum RowPreference
+{
+    FRONT, MIDDLE, BACK
+}
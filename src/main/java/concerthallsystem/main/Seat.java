@@ -6,7 +6,6 @@ import concerthallsystem.exceptions.SeatIOException;
 import java.io.File;
 import java.io.PrintWriter;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * The main.Seat class is an class that takes on the
@@ -14,7 +13,9 @@ import java.util.regex.Pattern;
  * this class holds the important variables and methods each subclass
  * of this class should have, and each subclass can override these methods
  * when they need to, or don't even implement them at all.
- * The main.Concert class accesses each individual seat through the main.Seat class
+ * The main.Concert class accesses each individual seat through the main.Seat class.
+ * A booked seat holds the id its customer has in the concerts main.CustomerRegistry
+ * rather than their name, so the concert finds the customer by array index.
  *
  * @author Daniel Black
  */
@@ -22,10 +23,11 @@ import java.util.regex.Pattern;
 public class Seat implements Comparable<Seat>
 {
     private double price_;
-    private boolean isBooked_;
-    private String bookedBy_;
+    private volatile int bookeeId_ = NO_CUSTOMER;
     private String row_;
     private int number_;
+    private int index_;
+    public static final int NO_CUSTOMER = -1;
 
     public Seat(String row, int num)
     {
@@ -38,40 +40,39 @@ public class Seat implements Comparable<Seat>
     protected Seat(Seat seat)
     {
         this(seat.row_, seat.number_);
-        this.bookedBy_ = seat.bookedBy_;
-        this.isBooked_ = true;
+        this.bookeeId_ = seat.bookeeId_;
     }
 
+    //Seats are ordered by their place in the concerts seat array,
+    //which is by row in layout order and then by seat number
     @Override
     public int compareTo(Seat obj)
     {
-        if(this.hashCode() < obj.hashCode()) {
-            return -1;
-        }
-        else if(this.hashCode() == obj.hashCode()) {
-            return 0;
-        }
-        else {
-            return 1;
-        }
+        return Integer.compare(this.index_, obj.index_);
     }
 
     public void book(Customer customer)
     {
-        this.setBookee(customer.getName());
+        this.bookeeId_ = customer.getId();
         customer.addSeat(this);
     }
 
     public void unBook(Customer customer) throws CannotUnbookSeatException
     {
-        this.setBookee(null);
+        this.bookeeId_ = NO_CUSTOMER;
         customer.removeSeat(this);
     }
 
-    public boolean save(PrintWriter output)
+    //The seats line in the Booked_seats.txt file
+    public String toRecord(Customer bookee)
+    {
+        return this.row_ + " " + this.number_ + " " + bookee.getName();
+    }
+
+    public boolean save(PrintWriter output, Customer bookee)
     {
         try {
-            output.printf("%s %d %s%n", this.row_, this.number_, this.bookedBy_);
+            output.println(this.toRecord(bookee));
         }
         catch(Exception e) {
             return false;
@@ -79,63 +80,24 @@ public class Seat implements Comparable<Seat>
         return true;
     }
 
-    public static Seat load(Scanner input, File seatsFile, int seatLineNum) throws SeatIOException
+    //Reads a seat line of the form "<row> <number> <bookee name>", the row and
+    //number are checked against the concerts layout by the caller, and the
+    //bookee must already be one of the customers read in
+    public static Seat load(RecordReader input, File seatsFile, int seatLineNum, CustomerRegistry customers) throws SeatIOException
     {
         Seat temp = new Seat();
-        Pattern rowPattern = Pattern.compile("[a-iA-I]");
-        Pattern numPattern = Pattern.compile("[1-9]|10");
         try {
-            if(input.hasNext(rowPattern)) {
-                temp.row_ = input.next().toUpperCase();
-            }
-            else {
-                throw new InputMismatchException();
-            }
-
-            if(input.hasNext(numPattern)) {
-                temp.number_ = input.nextInt();
-            }
-            else {
-                throw new InputMismatchException();
-            }
-
-            while(input.hasNext()) {
-                if(!input.hasNext(rowPattern)) {
-                    if(temp.bookedBy_ != null) {
-                        temp.bookedBy_ += " " + input.next();
-                    }
-                    else {
-                        temp.bookedBy_ = input.next();
-                    }
-                }
-                else {
-                    if(temp.bookedBy_.length() > 0) {
-                        break;
-                    }
-                    else {
-                        throw new InputMismatchException();
-                    }
-                }
-            }
-
-            if(Pattern.compile("[A-C]").pattern().contains(temp.row_) ) {
-                temp = new GoldSeat(temp);
-            }
-            else if(Pattern.compile("[D-F]").pattern().contains(temp.row_)) {
-                temp = new SilverSeat(temp);
-            }
-            else if(Pattern.compile("[G-I]").pattern().contains(temp.row_)) {
-                temp = new BronzeSeat(temp);
+            temp.row_ = input.nextToken().toUpperCase();
+            temp.number_ = input.nextInt();
+            Customer bookee = customers.find(input.rest());
+            if(bookee == null) {
+                throw new NoSuchElementException();
             }
+            temp.bookeeId_ = bookee.getId();
         }
-        catch(ArrayIndexOutOfBoundsException | NoSuchElementException ex) {
+        catch(NumberFormatException | NoSuchElementException ex) {
             throw new SeatIOException(seatsFile, seatLineNum);
         }
-        finally {
-            if(input.hasNextLine()) {
-                input.nextLine();
-            }
-        }
         return temp;
     }
 
@@ -149,14 +111,31 @@ public class Seat implements Comparable<Seat>
         return this.number_;
     }
 
+    //The position of this seat in its concerts seat array
+    public int getIndex()
+    {
+        return this.index_;
+    }
+
+    void setIndex(int index)
+    {
+        this.index_ = index;
+    }
+
     public boolean getStatus()
     {
-        return this.isBooked_;
+        return this.bookeeId_ != NO_CUSTOMER;
     }
 
-    public String getBookee()
+    //The id of the customer who booked the seat, or NO_CUSTOMER
+    public int getBookeeId()
     {
-        return this.bookedBy_;
+        return this.bookeeId_;
+    }
+
+    void setBookeeId(int customerId)
+    {
+        this.bookeeId_ = customerId;
     }
 
     public double getPrice()
@@ -169,17 +148,6 @@ public class Seat implements Comparable<Seat>
         this.price_ = price;
     }
 
-    public void setBookee(String name)
-    {
-        if(name != null) {
-            this.isBooked_ = true;
-        }
-        else {
-            this.isBooked_ = false;
-        }
-        this.bookedBy_ = name;
-    }
-
     @Override
     public String toString()
     {
@@ -0,0 +1,67 @@
+package concerthallsystem.main;
+
+/**
+ * The SeatChange class describes one change to a concert, a seat being booked,
+ * unbooked, held or released from a hold, a section being given a new price,
+ * or all of its bookings being loaded.
+ * Changes are sent out in batches by the main.SeatChangePublisher.
+ *
+ * @author Daniel Black
+ */
+
+public final class SeatChange
+{
+    public enum Kind
+    {
+        BOOKED, UNBOOKED, HELD, RELEASED, PRICE_CHANGED, BOOKINGS_LOADED
+    }
+
+    private final Kind kind;
+    private final Concert concert;
+    private final int seatIndex;
+    private final int section;
+    private final double price;
+
+    public SeatChange(Kind kind, Concert concert, int seatIndex, int section, double price)
+    {
+        this.kind = kind;
+        this.concert = concert;
+        this.seatIndex = seatIndex;
+        this.section = section;
+        this.price = price;
+    }
+
+    public Kind getKind()
+    {
+        return this.kind;
+    }
+
+    public Concert getConcert()
+    {
+        return this.concert;
+    }
+
+    //The index of the seat that was booked or unbooked, or -1 for other changes
+    public int getSeatIndex()
+    {
+        return this.seatIndex;
+    }
+
+    //The section of the seat, or of the new price, or -1 when the bookings were loaded
+    public int getSection()
+    {
+        return this.section;
+    }
+
+    //The new price of the section, or 0 for other changes
+    public double getPrice()
+    {
+        return this.price;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.kind + " " + this.concert + " seat " + this.seatIndex + " section " + this.section;
+    }
+}
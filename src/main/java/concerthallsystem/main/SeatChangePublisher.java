@@ -0,0 +1,123 @@
+package concerthallsystem.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SeatChangePublisher class turns the bookings and price changes of the concerts
+ * it listens to into a java.util.concurrent.Flow of main.SeatChange batches.
+ * Changes are gathered for one pulse, about a frame, after the first of them, and then
+ * sent as one batch, so a burst of bookings reaches a subscriber as a single update.
+ * Each subscriber is sent batches at its own pace, and while it is busy the next batch
+ * simply grows, so a slow subscriber never holds up a booking.
+ *
+ * @author Daniel Black
+ */
+
+public class SeatChangePublisher implements BookingListener, Flow.Publisher<List<SeatChange>>, AutoCloseable
+{
+    public static final long PULSE_MILLIS = 16;
+    private static final ScheduledExecutorService PULSE = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "seat-change-pulse");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SubmissionPublisher<List<SeatChange>> publisher = new SubmissionPublisher<>();
+    private final Object pendingLock = new Object();
+    private List<SeatChange> pending = new ArrayList<>();
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<SeatChange>> subscriber)
+    {
+        this.publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public void bookingsLoaded(Concert concert, List<Seat> bookedSeats)
+    {
+        this.publish(new SeatChange(SeatChange.Kind.BOOKINGS_LOADED, concert, -1, -1, 0));
+    }
+
+    @Override
+    public void seatBooked(Concert concert, Seat seat)
+    {
+        this.publish(new SeatChange(
+                SeatChange.Kind.BOOKED, concert, seat.getIndex(), concert.getLayout().getSectionOf(seat.getIndex()), 0
+        ));
+    }
+
+    @Override
+    public void seatUnBooked(Concert concert, Seat seat)
+    {
+        this.publish(new SeatChange(
+                SeatChange.Kind.UNBOOKED, concert, seat.getIndex(), concert.getLayout().getSectionOf(seat.getIndex()), 0
+        ));
+    }
+
+    @Override
+    public void seatHeld(Concert concert, Seat seat)
+    {
+        this.publish(new SeatChange(
+                SeatChange.Kind.HELD, concert, seat.getIndex(), concert.getLayout().getSectionOf(seat.getIndex()), 0
+        ));
+    }
+
+    @Override
+    public void seatReleased(Concert concert, Seat seat)
+    {
+        this.publish(new SeatChange(
+                SeatChange.Kind.RELEASED, concert, seat.getIndex(), concert.getLayout().getSectionOf(seat.getIndex()), 0
+        ));
+    }
+
+    @Override
+    public void sectionPriceChanged(Concert concert, int section, double price)
+    {
+        this.publish(new SeatChange(SeatChange.Kind.PRICE_CHANGED, concert, -1, section, price));
+    }
+
+    //Adds the change to the pending batch, the first change of a batch
+    //schedules it to be sent at the end of the pulse
+    private void publish(SeatChange change)
+    {
+        if(!this.publisher.hasSubscribers()) {
+            return;
+        }
+        boolean first;
+        synchronized(this.pendingLock) {
+            first = this.pending.isEmpty();
+            this.pending.add(change);
+        }
+        if(first) {
+            PULSE.schedule(this::flush, PULSE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //Sends the pending batch. If a subscriber has fallen behind this waits on the
+    //pulse thread for it to catch up, while new changes gather in the next batch
+    private void flush()
+    {
+        List<SeatChange> batch;
+        synchronized(this.pendingLock) {
+            batch = this.pending;
+            this.pending = new ArrayList<>();
+        }
+        if(!batch.isEmpty() && !this.publisher.isClosed()) {
+            this.publisher.submit(Collections.unmodifiableList(batch));
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.flush();
+        this.publisher.close();
+    }
+}
@@ -0,0 +1,72 @@
+package concerthallsystem.main;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+/**
+ * The SeatChangeSubscriber class hands batches of main.SeatChange to a part of the
+ * UI on the JavaFX application thread. The next batch is only asked for once the
+ * last one has been applied, so while the UI is busy the changes gather into one
+ * larger batch rather than queueing up as many small updates.
+ *
+ * @author Daniel Black
+ */
+
+public class SeatChangeSubscriber implements Flow.Subscriber<List<SeatChange>>
+{
+    private final Consumer<List<SeatChange>> onChanges;
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled = false;
+
+    public SeatChangeSubscriber(Consumer<List<SeatChange>> onChanges)
+    {
+        this.onChanges = onChanges;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+        this.subscription = subscription;
+        if(this.cancelled) {
+            subscription.cancel();
+        }
+        else {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onNext(List<SeatChange> changes)
+    {
+        Platform.runLater(() -> {
+            if(this.cancelled) {
+                return;
+            }
+            this.onChanges.accept(changes);
+            this.subscription.request(1);
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+        System.out.println(throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete()
+    {
+    }
+
+    //Stops any more changes from being handed over
+    public void cancel()
+    {
+        this.cancelled = true;
+        Flow.Subscription subscription = this.subscription;
+        if(subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -1,43 +1,59 @@
 package concerthallsystem.main;
 
 import javafx.event.EventHandler;
-import javafx.event.Event;
-import javafx.scene.Node;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
 
 /**
- * This purpose of this class is to respond to a mouse click on a seat icon
- * in the seating plan of the GUI class. This class checks to see if the selected
- * seat is either booked or not, and acts accordingly depending on the seat type
- * that is passed through to the constructor when an object of this class is initialized
+ * This purpose of this class is to respond to a mouse click on a seat
+ * in the seating plan of the GUI class. One handler serves the whole plan,
+ * it asks the main.SeatingPlanCanvas which seat is under the click, checks to
+ * see if that seat is either booked or not, and acts accordingly.
+ * Holding Ctrl while clicking selects the seat to be booked as part of a group
  *
  * @author Daniel Black
  */
 
-public class SeatEventHandler implements EventHandler
+public class SeatEventHandler implements EventHandler<MouseEvent>
 {
-    private final Concert selectedConcert_;
-    private final Seat selectedSeat_;
-    private final Node seatIcon;
+    private final SeatingPlanCanvas seatingPlan;
 
-    public SeatEventHandler(Concert concert, Seat seat, Node icon)
+    public SeatEventHandler(SeatingPlanCanvas seatingPlan)
     {
-        this.selectedConcert_ = concert;
-        this.selectedSeat_ = seat;
-        this.seatIcon = icon;
+        this.seatingPlan = seatingPlan;
     }
 
     @Override
-    public void handle(Event event)
+    public void handle(MouseEvent event)
     {
+        //A click at the end of dragging the plan around is not a click on a seat
+        if(event.getButton() != MouseButton.PRIMARY || !event.isStillSincePress()) {
+            return;
+        }
+        Concert concert = this.seatingPlan.getConcert();
+        int seatIndex = this.seatingPlan.getSeatAt(event.getX(), event.getY());
+        if(concert == null || seatIndex < 0) {
+            return;
+        }
+        if(event.isShortcutDown()) {
+            this.seatingPlan.toggleSelected(seatIndex);
+            return;
+        }
+        Seat selectedSeat = concert.getSeats()[seatIndex];
+
         //If the seat is booked, then try to unbook it
-        if(this.selectedSeat_.getStatus()) {
+        if(selectedSeat.getStatus()) {
             DialogPopup unBookSeatDialog = new DialogPopup();
-            unBookSeatDialog.drawUnBookSeatDialog(this.selectedConcert_, this.selectedSeat_, this.seatIcon);
+            unBookSeatDialog.drawUnBookSeatDialog(concert, selectedSeat);
+        }
+        //If the seat is held, another clerk is already booking it
+        else if(concert.isSeatHeld(seatIndex)) {
+            DialogPopup.drawResultDialog("Seat (" + selectedSeat + ") is being booked by someone else");
         }
         //If the seat is not booked, then allow the user to book it
         else {
             DialogPopup bookSeatDialog = new DialogPopup();
-            bookSeatDialog.drawBookSeatDialog(this.selectedConcert_, this.selectedSeat_, this.seatIcon);
+            bookSeatDialog.drawBookSeatDialog(concert, selectedSeat, this.seatingPlan.getWaitingRoom());
         }
     }
 }
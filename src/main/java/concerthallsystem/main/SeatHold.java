@@ -0,0 +1,35 @@
+package concerthallsystem.main;
+
+/**
+ * The SeatHold class is a claim on a free seat for a short while, such as while a
+ * clerk types in the name it is being booked for. A held seat can't be booked or
+ * held by anyone else and is not counted as available, but it is not booked
+ * either, the hold is turned into a booking with Concert.bookHeldSeat(),
+ * given back with Concert.releaseHold(), or runs out on its own.
+ *
+ * @author Daniel Black
+ */
+
+public final class SeatHold
+{
+    private final Seat seat;
+    private final long expiresAt;
+    TimerWheel.Timeout timeout;
+
+    SeatHold(Seat seat, long expiresAt)
+    {
+        this.seat = seat;
+        this.expiresAt = expiresAt;
+    }
+
+    public Seat getSeat()
+    {
+        return this.seat;
+    }
+
+    //The time, in milliseconds since the epoch, when the hold runs out
+    public long getExpiresAt()
+    {
+        return this.expiresAt;
+    }
+}
@@ -0,0 +1,125 @@
+package concerthallsystem.main;
+
+import java.util.Arrays;
+
+/**
+ * The SeatIndexSet class is a set of seat indexes, kept in index order, which is
+ * the order of the rows in the hall layout and of the seat numbers within them.
+ * A customer with a handful of seats keeps them in a small sorted int array, found by
+ * binary search, and an empty set shares one empty array, so it costs next to nothing.
+ * Once a bitmap over the seats up to the highest index would be smaller than the
+ * array, the set switches to the bitmap, where adding or removing a seat is a
+ * single bit, so a customer who books a large block stays small as well.
+ * The class is not thread safe, the main.Customer holding it guards it.
+ *
+ * @author Daniel Black
+ */
+
+final class SeatIndexSet
+{
+    private static final int[] NO_SEATS = new int[0];
+    private int[] sorted = NO_SEATS;
+    private long[] bits;
+    private int size = 0;
+
+    boolean add(int seatIndex)
+    {
+        if(this.bits != null) {
+            int word = seatIndex >>> 6;
+            if(word >= this.bits.length) {
+                this.bits = Arrays.copyOf(this.bits, word + 1);
+            }
+            long mask = 1L << seatIndex;
+            if((this.bits[word] & mask) != 0) {
+                return false;
+            }
+            this.bits[word] |= mask;
+            this.size++;
+            return true;
+        }
+
+        int position = Arrays.binarySearch(this.sorted, 0, this.size, seatIndex);
+        if(position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if(this.size == this.sorted.length) {
+            int grown = Math.max(4, this.size + (this.size >> 1));
+            int highest = this.size > 0 ? Math.max(seatIndex, this.sorted[this.size - 1]) : seatIndex;
+            //A word of the bitmap takes the room of two ints of the array
+            if(((highest >>> 6) + 1) * 2 < grown) {
+                this.switchToBitmap(highest);
+                return this.add(seatIndex);
+            }
+            this.sorted = Arrays.copyOf(this.sorted, grown);
+        }
+        System.arraycopy(this.sorted, position, this.sorted, position + 1, this.size - position);
+        this.sorted[position] = seatIndex;
+        this.size++;
+        return true;
+    }
+
+    boolean remove(int seatIndex)
+    {
+        if(this.bits != null) {
+            int word = seatIndex >>> 6;
+            long mask = 1L << seatIndex;
+            if(word >= this.bits.length || (this.bits[word] & mask) == 0) {
+                return false;
+            }
+            this.bits[word] &= ~mask;
+            this.size--;
+            return true;
+        }
+
+        int position = Arrays.binarySearch(this.sorted, 0, this.size, seatIndex);
+        if(position < 0) {
+            return false;
+        }
+        System.arraycopy(this.sorted, position + 1, this.sorted, position, this.size - position - 1);
+        this.size--;
+        return true;
+    }
+
+    boolean contains(int seatIndex)
+    {
+        if(this.bits != null) {
+            int word = seatIndex >>> 6;
+            return word < this.bits.length && (this.bits[word] & (1L << seatIndex)) != 0;
+        }
+        return Arrays.binarySearch(this.sorted, 0, this.size, seatIndex) >= 0;
+    }
+
+    int size()
+    {
+        return this.size;
+    }
+
+    //The seat indexes in ascending order
+    int[] toArray()
+    {
+        if(this.bits == null) {
+            return Arrays.copyOf(this.sorted, this.size);
+        }
+        int[] indexes = new int[this.size];
+        int next = 0;
+        for(int word = 0; word < this.bits.length; word++) {
+            long remaining = this.bits[word];
+            while(remaining != 0) {
+                indexes[next++] = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+            }
+        }
+        return indexes;
+    }
+
+    private void switchToBitmap(int highest)
+    {
+        long[] bitmap = new long[(highest >>> 6) + 1];
+        for(int i = 0; i < this.size; i++) {
+            bitmap[this.sorted[i] >>> 6] |= 1L << this.sorted[i];
+        }
+        this.bits = bitmap;
+        this.sorted = NO_SEATS;
+    }
+}
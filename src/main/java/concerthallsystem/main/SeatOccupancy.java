@@ -0,0 +1,130 @@
+package concerthallsystem.main;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SeatOccupancy class is a compact bitmap of which seats in a concert
+ * are booked, one bit per seat, indexed the same way as the concerts seat array.
+ * Alongside the bitmap it keeps a running count of booked seats for every
+ * seat section, so the number of available seats, or if a concert is sold out,
+ * can be answered without looking at any seat.
+ * Each word of the bitmap is updated with a compare-and-set, so seats that share
+ * a word but belong to different sections can be booked at the same time.
+ *
+ * @author Daniel Black
+ */
+
+public class SeatOccupancy
+{
+    private final AtomicLongArray words;
+    private final AtomicIntegerArray sectionCounts;
+    private final int[] sectionSizes;
+    private final int totalSeats;
+
+    public SeatOccupancy(int[] sectionSizes)
+    {
+        int total = 0;
+        for(int size : sectionSizes) {
+            total += size;
+        }
+        this.totalSeats = total;
+        this.sectionSizes = sectionSizes.clone();
+        this.sectionCounts = new AtomicIntegerArray(sectionSizes.length);
+        this.words = new AtomicLongArray((total + 63) >>> 6);
+    }
+
+    //Marks the seat at seatIndex as booked, returns false if it already was
+    public boolean set(int seatIndex, int section)
+    {
+        int wordIndex = seatIndex >>> 6;
+        long mask = 1L << seatIndex;
+        long word;
+        do {
+            word = this.words.get(wordIndex);
+            if((word & mask) != 0) {
+                return false;
+            }
+        } while(!this.words.compareAndSet(wordIndex, word, word | mask));
+        this.sectionCounts.incrementAndGet(section);
+        return true;
+    }
+
+    //Marks the seat at seatIndex as available, returns false if it already was
+    public boolean clear(int seatIndex, int section)
+    {
+        int wordIndex = seatIndex >>> 6;
+        long mask = 1L << seatIndex;
+        long word;
+        do {
+            word = this.words.get(wordIndex);
+            if((word & mask) == 0) {
+                return false;
+            }
+        } while(!this.words.compareAndSet(wordIndex, word, word & ~mask));
+        this.sectionCounts.decrementAndGet(section);
+        return true;
+    }
+
+    public boolean isBooked(int seatIndex)
+    {
+        return (this.words.get(seatIndex >>> 6) & (1L << seatIndex)) != 0;
+    }
+
+    //Returns the index of the next booked seat at or after fromIndex,
+    //or -1 if there are no more booked seats
+    public int nextBooked(int fromIndex)
+    {
+        if(fromIndex >= this.totalSeats) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> 6;
+        long word = this.words.get(wordIndex) & (-1L << fromIndex);
+        while(word == 0) {
+            if(++wordIndex == this.words.length()) {
+                return -1;
+            }
+            word = this.words.get(wordIndex);
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    public int getBookedCount()
+    {
+        int count = 0;
+        for(int i = 0; i < this.sectionCounts.length(); i++) {
+            count += this.sectionCounts.get(i);
+        }
+        return count;
+    }
+
+    public int getBookedCount(int section)
+    {
+        return this.sectionCounts.get(section);
+    }
+
+    public int getAvailableCount()
+    {
+        return this.totalSeats - this.getBookedCount();
+    }
+
+    public int getAvailableCount(int section)
+    {
+        return this.sectionSizes[section] - this.sectionCounts.get(section);
+    }
+
+    public boolean isSoldOut()
+    {
+        return this.getAvailableCount() == 0;
+    }
+
+    public boolean isSoldOut(int section)
+    {
+        return this.getAvailableCount(section) == 0;
+    }
+
+    public int getTotalSeats()
+    {
+        return this.totalSeats;
+    }
+}
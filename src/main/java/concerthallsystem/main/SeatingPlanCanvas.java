@@ -0,0 +1,454 @@
+package concerthallsystem.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Flow;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * The SeatingPlanCanvas class draws the seating plan of a concert onto a single canvas,
+ * in place of a node for every seat, so halls of any size can be shown. Only the seats
+ * inside the visible part of the plan are drawn, and a click is turned into a seat by
+ * working out which row and column it landed in, so one main.SeatEventHandler serves
+ * every seat. The plan can be zoomed with the scroll wheel and moved by dragging it.
+ * Once it is listening to the seat changes of the concerts, only the seats that have
+ * changed are drawn again, whichever thread booked them. Free seats can be selected
+ * to be booked together as a group, and seats held while another clerk books
+ * them are shown in their own colour.
+ * Like the original plan, rows run from the top down, seat 1 of each row is on the
+ * right, the row labels are on the right and the seat numbers are along the top.
+ *
+ * @author Daniel Black
+ */
+
+public class SeatingPlanCanvas extends Region
+{
+    //Sizes in plan units, which are pixels when the plan is not zoomed
+    private static final double SEAT_WIDTH = 40;
+    private static final double SEAT_HEIGHT = 35;
+    private static final double SEAT_GAP = 5;
+    private static final double SECTION_GAP = 20;
+    private static final double LEFT_MARGIN = 120;
+    private static final double TOP_MARGIN = 40;
+    private static final double RIGHT_MARGIN = 50;
+    private static final double MIN_SCALE = 0.01;
+    private static final double MAX_SCALE = 4;
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color BOOKED = Color.web("#E80000");
+    private static final Color GOLD = Color.web("#FFD700");
+    private static final Color SILVER = Color.web("#C0C0C0");
+    private static final Color BRONZE = Color.web("#CD7F32");
+    private static final Color SELECTED = Color.web("#4B0082");
+    private static final Color HELD = Color.web("#FF8C00");
+    private static final Color[] OTHER_SECTIONS = {
+            Color.web("#6495ED"), Color.web("#3CB371"), Color.web("#BA55D3"), Color.web("#20B2AA")
+    };
+    private static final Font LABEL_FONT = Font.font(18);
+    private static final Font SECTION_FONT = Font.font(20);
+
+    private final Canvas canvas = new Canvas();
+    private Concert concert_;
+    private HallLayout layout_;
+    private Color[] sectionColours;
+    private double[] rowTops;
+    private int longestRow;
+    private double planWidth;
+    private double scale = 1;
+    private double offsetX;
+    private double offsetY;
+    private double dragX;
+    private double dragY;
+    private SeatChangeSubscriber subscriber;
+    private WaitingRoom waitingRoom;
+    private final BitSet selected = new BitSet();
+
+    public SeatingPlanCanvas()
+    {
+        this.getChildren().add(this.canvas);
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(this.widthProperty());
+        clip.heightProperty().bind(this.heightProperty());
+        this.setClip(clip);
+        this.setCursor(Cursor.HAND);
+
+        this.setOnMouseClicked(new SeatEventHandler(this));
+        this.setOnMousePressed(this::startDrag);
+        this.setOnMouseDragged(this::drag);
+        this.setOnMouseReleased(event -> this.setCursor(Cursor.HAND));
+        this.setOnScroll(this::zoom);
+    }
+
+    //Shows the seating plan of a concert, zoomed so its rows fit across the canvas.
+    //Nothing is drawn beyond what is visible, so this takes the same time for any hall
+    public void setConcert(Concert concert)
+    {
+        this.concert_ = concert;
+        this.layout_ = concert.getLayout();
+        this.selected.clear();
+        HallLayout layout = this.layout_;
+
+        this.sectionColours = new Color[layout.getSectionCount()];
+        int otherSections = 0;
+        for(int section = 0; section < this.sectionColours.length; section++) {
+            switch(layout.getSectionName(section)) {
+                case "Gold":
+                    this.sectionColours[section] = GOLD;
+                    break;
+                case "Silver":
+                    this.sectionColours[section] = SILVER;
+                    break;
+                case "Bronze":
+                    this.sectionColours[section] = BRONZE;
+                    break;
+                default:
+                    this.sectionColours[section] = OTHER_SECTIONS[otherSections++ % OTHER_SECTIONS.length];
+                    break;
+            }
+        }
+
+        //Rows are evenly spaced, with a wider gap wherever a new section starts
+        this.rowTops = new double[layout.getRowCount()];
+        this.longestRow = 0;
+        double top = TOP_MARGIN;
+        for(int row = 0; row < this.rowTops.length; row++) {
+            if(row > 0 && layout.getRowSection(row) != layout.getRowSection(row - 1)) {
+                top += SECTION_GAP;
+            }
+            this.rowTops[row] = top;
+            top += SEAT_HEIGHT + SEAT_GAP;
+            this.longestRow = Math.max(this.longestRow, layout.getRowLength(row));
+        }
+        this.planWidth = LEFT_MARGIN + this.longestRow * (SEAT_WIDTH + SEAT_GAP) + RIGHT_MARGIN;
+
+        double width = this.getWidth() > 0 ? this.getWidth() : this.getPrefWidth();
+        this.scale = clamp(width > 0 ? width / this.planWidth : 1, MIN_SCALE, 1);
+        this.offsetX = Math.max(0, (width - this.planWidth * this.scale) / 2);
+        this.offsetY = 0;
+        this.redraw();
+    }
+
+    //Keeps the plan up to date with the bookings made while it is shown
+    public void listenTo(Flow.Publisher<List<SeatChange>> seatChanges)
+    {
+        if(this.subscriber != null) {
+            this.subscriber.cancel();
+        }
+        this.subscriber = new SeatChangeSubscriber(this::applyChanges);
+        seatChanges.subscribe(this.subscriber);
+    }
+
+    //Draws again just the seats of the shown concert that were booked or unbooked,
+    //or the whole plan if all of its bookings were loaded again
+    private void applyChanges(List<SeatChange> changes)
+    {
+        for(SeatChange change : changes) {
+            if(change.getConcert() != this.concert_) {
+                continue;
+            }
+            switch(change.getKind()) {
+                case BOOKED:
+                case HELD:
+                    this.selected.clear(change.getSeatIndex());
+                    this.drawSeat(change.getSeatIndex());
+                    break;
+                case UNBOOKED:
+                case RELEASED:
+                    this.drawSeat(change.getSeatIndex());
+                    break;
+                case BOOKINGS_LOADED:
+                    this.selected.clear();
+                    this.redraw();
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    //Selects a free seat to be booked in a group, or deselects it if it already was
+    public void toggleSelected(int seatIndex)
+    {
+        if(this.concert_.isSeatBooked(seatIndex) || this.concert_.isSeatHeld(seatIndex)) {
+            return;
+        }
+        this.selected.flip(seatIndex);
+        this.drawSeat(seatIndex);
+    }
+
+    //The selected seats, in seat order
+    public List<Seat> getSelectedSeats()
+    {
+        List<Seat> seats = new ArrayList<>(this.selected.cardinality());
+        for(int i = this.selected.nextSetBit(0); i >= 0; i = this.selected.nextSetBit(i + 1)) {
+            seats.add(this.concert_.getSeats()[i]);
+        }
+        return seats;
+    }
+
+    //Selects just the given seats, such as a block found for a party
+    public void selectSeats(List<Seat> seats)
+    {
+        this.clearSelection();
+        for(Seat seat : seats) {
+            this.toggleSelected(seat.getIndex());
+        }
+    }
+
+    public void clearSelection()
+    {
+        BitSet wasSelected = (BitSet) this.selected.clone();
+        this.selected.clear();
+        for(int i = wasSelected.nextSetBit(0); i >= 0; i = wasSelected.nextSetBit(i + 1)) {
+            this.drawSeat(i);
+        }
+    }
+
+    public Concert getConcert()
+    {
+        return this.concert_;
+    }
+
+    //The waiting room that seats booked from the plan go through
+    public void setWaitingRoom(WaitingRoom waitingRoom)
+    {
+        this.waitingRoom = waitingRoom;
+    }
+
+    public WaitingRoom getWaitingRoom()
+    {
+        return this.waitingRoom;
+    }
+
+    //Returns the index of the seat under a point on the canvas, or -1 if there is none
+    public int getSeatAt(double x, double y)
+    {
+        if(this.concert_ == null) {
+            return -1;
+        }
+        double planX = (x - this.offsetX) / this.scale;
+        double planY = (y - this.offsetY) / this.scale;
+
+        int row = rowAt(this.rowTops, planY);
+        if(row < 0 || planY - this.rowTops[row] > SEAT_HEIGHT) {
+            return -1;
+        }
+        double columnX = planX - LEFT_MARGIN;
+        int column = (int) Math.floor(columnX / (SEAT_WIDTH + SEAT_GAP));
+        if(column < 0 || columnX - column * (SEAT_WIDTH + SEAT_GAP) > SEAT_WIDTH) {
+            return -1;
+        }
+        int number = this.longestRow - column;
+        if(number < 1 || number > this.layout_.getRowLength(row)) {
+            return -1;
+        }
+        return this.layout_.getFirstSeatIndex(row) + number - 1;
+    }
+
+    //Draws one seat again, after it has been booked or unbooked
+    public void drawSeat(int seatIndex)
+    {
+        if(this.concert_ == null || !this.concert_.isLoaded()) {
+            return;
+        }
+        int row = this.layout_.getRowOf(seatIndex);
+        int number = seatIndex - this.layout_.getFirstSeatIndex(row) + 1;
+        GraphicsContext graphics = this.canvas.getGraphicsContext2D();
+        double x = this.seatLeft(number);
+        double y = this.offsetY + this.rowTops[row] * this.scale;
+        if(x + SEAT_WIDTH * this.scale < 0 || x > this.canvas.getWidth()
+                || y + SEAT_HEIGHT * this.scale < 0 || y > this.canvas.getHeight()) {
+            return;
+        }
+        graphics.setFill(BACKGROUND);
+        graphics.fillRect(x, y, SEAT_WIDTH * this.scale, SEAT_HEIGHT * this.scale);
+        graphics.setFill(this.seatColour(seatIndex, this.layout_.getRowSection(row)));
+        this.fillSeats(graphics, x, y, 1);
+    }
+
+    //Draws every seat that can be seen. The visible rows are found from the offset
+    //and scale, and in each of them only the visible columns are drawn
+    public void redraw()
+    {
+        GraphicsContext graphics = this.canvas.getGraphicsContext2D();
+        double width = this.canvas.getWidth();
+        double height = this.canvas.getHeight();
+        graphics.setFill(BACKGROUND);
+        graphics.fillRect(0, 0, width, height);
+        if(this.concert_ == null || !this.concert_.isLoaded() || this.rowTops.length == 0) {
+            return;
+        }
+
+        HallLayout layout = this.layout_;
+        int firstRow = Math.max(0, rowAt(this.rowTops, -this.offsetY / this.scale));
+        int lastRow = Math.max(0, rowAt(this.rowTops, (height - this.offsetY) / this.scale));
+        //Columns are counted from the left, where the longest row starts
+        double columnPitch = SEAT_WIDTH + SEAT_GAP;
+        int firstColumn = (int) Math.max(0, Math.floor((-this.offsetX / this.scale - LEFT_MARGIN) / columnPitch));
+        int lastColumn = (int) Math.min(
+                this.longestRow - 1, Math.floor(((width - this.offsetX) / this.scale - LEFT_MARGIN) / columnPitch)
+        );
+        boolean showLabels = this.scale >= 0.5;
+
+        graphics.setTextBaseline(VPos.CENTER);
+        int section = -1;
+        for(int row = firstRow; row <= lastRow; row++) {
+            double y = this.offsetY + this.rowTops[row] * this.scale;
+            int rowSection = layout.getRowSection(row);
+            if(showLabels && rowSection != section) {
+                graphics.setFill(Color.BLACK);
+                graphics.setFont(SECTION_FONT);
+                graphics.setTextAlign(TextAlignment.LEFT);
+                graphics.fillText(layout.getSectionName(rowSection) + " Section", this.offsetX + 5 * this.scale, y + SEAT_HEIGHT * this.scale / 2);
+            }
+            section = rowSection;
+
+            //Seat numbers run from the longest row down to 1, so a row with fewer
+            //seats starts further to the right
+            int rowLength = layout.getRowLength(row);
+            int firstSeat = layout.getFirstSeatIndex(row);
+            int highest = Math.min(rowLength, this.longestRow - firstColumn);
+            int lowest = Math.max(1, this.longestRow - lastColumn);
+            this.drawRow(graphics, firstSeat, section, lowest, highest, y);
+
+            if(showLabels) {
+                graphics.setFill(Color.BLACK);
+                graphics.setFont(LABEL_FONT);
+                graphics.setTextAlign(TextAlignment.CENTER);
+                graphics.fillText(
+                        layout.getRowLabel(row), this.seatLeft(0) + RIGHT_MARGIN / 2 * this.scale, y + SEAT_HEIGHT * this.scale / 2
+                );
+            }
+        }
+
+        if(showLabels) {
+            graphics.setFill(Color.BLACK);
+            graphics.setFont(LABEL_FONT);
+            graphics.setTextAlign(TextAlignment.CENTER);
+            double y = this.offsetY + TOP_MARGIN / 2 * this.scale;
+            for(int number = Math.max(1, this.longestRow - lastColumn); number <= this.longestRow - firstColumn; number++) {
+                graphics.fillText(String.valueOf(number), this.seatLeft(number) + SEAT_WIDTH * this.scale / 2, y);
+            }
+        }
+    }
+
+    //Draws the seats of a row from the highest number down to the lowest. When the plan
+    //is zoomed out too far for the gaps between seats to show, neighbouring seats of the
+    //same colour are drawn as one rectangle
+    private void drawRow(GraphicsContext graphics, int firstSeat, int section, int lowest, int highest, double y)
+    {
+        if(lowest > highest) {
+            return;
+        }
+        boolean joinSeats = SEAT_GAP * this.scale < 1;
+        int number = highest;
+        while(number >= lowest) {
+            Color colour = this.seatColour(firstSeat + number - 1, section);
+            int count = 1;
+            if(joinSeats) {
+                while(number - count >= lowest && this.seatColour(firstSeat + number - count - 1, section) == colour) {
+                    count++;
+                }
+            }
+            graphics.setFill(colour);
+            this.fillSeats(graphics, this.seatLeft(number), y, count);
+            number -= count;
+        }
+    }
+
+    //Fills count seats side by side, starting from the left edge of the first
+    private void fillSeats(GraphicsContext graphics, double x, double y, int count)
+    {
+        double width = (count * (SEAT_WIDTH + SEAT_GAP) - SEAT_GAP) * this.scale;
+        double height = SEAT_HEIGHT * this.scale;
+        if(this.scale >= 0.25) {
+            graphics.fillRoundRect(x, y, width, height, 8 * this.scale, 8 * this.scale);
+        }
+        else {
+            graphics.fillRect(x, y, Math.max(1, width), Math.max(1, height));
+        }
+    }
+
+    private Color seatColour(int seatIndex, int section)
+    {
+        if(this.concert_.isSeatBooked(seatIndex)) {
+            return BOOKED;
+        }
+        if(this.concert_.isSeatHeld(seatIndex)) {
+            return HELD;
+        }
+        return this.selected.get(seatIndex) ? SELECTED : this.sectionColours[section];
+    }
+
+    //The left edge on the canvas of the seat with this number in any row
+    private double seatLeft(int number)
+    {
+        return this.offsetX + (LEFT_MARGIN + (this.longestRow - number) * (SEAT_WIDTH + SEAT_GAP)) * this.scale;
+    }
+
+    //Returns the last row starting at or above planY, or -1 if planY is above every row
+    private static int rowAt(double[] rowTops, double planY)
+    {
+        int found = Arrays.binarySearch(rowTops, planY);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private static double clamp(double value, double min, double max)
+    {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private void startDrag(MouseEvent event)
+    {
+        this.dragX = event.getX();
+        this.dragY = event.getY();
+    }
+
+    private void drag(MouseEvent event)
+    {
+        if(event.getButton() != MouseButton.PRIMARY && event.getButton() != MouseButton.MIDDLE) {
+            return;
+        }
+        this.offsetX += event.getX() - this.dragX;
+        this.offsetY += event.getY() - this.dragY;
+        this.dragX = event.getX();
+        this.dragY = event.getY();
+        this.setCursor(Cursor.MOVE);
+        this.redraw();
+    }
+
+    //Zooms in or out around the mouse, so the seat under it stays put
+    private void zoom(ScrollEvent event)
+    {
+        double newScale = clamp(this.scale * Math.pow(1.1, event.getDeltaY() / 40), MIN_SCALE, MAX_SCALE);
+        double factor = newScale / this.scale;
+        this.offsetX = event.getX() - (event.getX() - this.offsetX) * factor;
+        this.offsetY = event.getY() - (event.getY() - this.offsetY) * factor;
+        this.scale = newScale;
+        this.redraw();
+        event.consume();
+    }
+
+    @Override
+    protected void layoutChildren()
+    {
+        if(this.canvas.getWidth() != this.getWidth() || this.canvas.getHeight() != this.getHeight()) {
+            this.canvas.setWidth(this.getWidth());
+            this.canvas.setHeight(this.getHeight());
+            this.redraw();
+        }
+    }
+}
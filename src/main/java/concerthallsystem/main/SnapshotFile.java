@@ -0,0 +1,176 @@
+package concerthallsystem.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SnapshotFile class reads and writes a concerts bookings in a compact binary
+ * form, as an alternative to the Booked_seats.txt and Customers.txt files.
+ * A snapshot holds a header, the section prices, the seat occupancy bitmap,
+ * a table of customers, and the customer of each booked seat as an index into
+ * that table. Snapshots are read through a memory mapped file, so loading a
+ * concert copies the bitmap straight out of the file rather than parsing text.
+ * Both forms hold the same information, so a concert can be read from one
+ * and written to the other without losing anything.
+ *
+ * The layout of a version 1 snapshot, all numbers big endian, is:
+ *   int magic, int version, int total seats, int section count,
+ *   double[section count] prices, int word count, long[word count] bitmap,
+ *   int customer count, then per customer: int name length, byte[] UTF-8 name,
+ *   byte entitlement flags, then per booked seat in seat order: int customer index.
+ *
+ * @author Daniel Black
+ */
+
+public final class SnapshotFile
+{
+    public static final String FILE_NAME = "Snapshot.bin";
+    private static final int MAGIC = 0x43485353;
+    private static final int VERSION = 1;
+    private static final int GOLD_ENTITLED = 1;
+    private static final int SILVER_ENTITLED = 2;
+
+    private SnapshotFile()
+    {
+    }
+
+    public static void write(Concert concert, File snapshotFile) throws IOException
+    {
+        write(encode(concert), snapshotFile);
+    }
+
+    //Encodes the concert into the bytes of a snapshot, the caller must make sure
+    //no bookings are made while this runs for the snapshot to be consistent
+    public static ByteBuffer encode(Concert concert)
+    {
+        HallLayout layout = concert.getLayout();
+        List<Seat> bookedSeats = concert.getBookedSeats();
+        Map<Customer, Integer> customerIds = new IdentityHashMap<>();
+        byte[][] names = new byte[concert.getCustomers().size()][];
+        byte[] flags = new byte[names.length];
+        int customerBytes = 0;
+        for(Customer customer : concert.getCustomers()) {
+            int id = customerIds.size();
+            if(id == names.length) {
+                break;
+            }
+            customerIds.put(customer, id);
+            names[id] = customer.getName().getBytes(StandardCharsets.UTF_8);
+            flags[id] = (byte) ((customer.isGoldEntitled() ? GOLD_ENTITLED : 0)
+                    | (customer.isSilverEntitled() ? SILVER_ENTITLED : 0));
+            customerBytes += 4 + names[id].length + 1;
+        }
+
+        int words = (layout.getTotalSeats() + 63) >>> 6;
+        int size = 16 + 8 * layout.getSectionCount() + 4 + 8 * words + 4 + customerBytes + 4 * bookedSeats.size();
+        ByteBuffer output = ByteBuffer.allocate(size);
+        output.putInt(MAGIC).putInt(VERSION).putInt(layout.getTotalSeats()).putInt(layout.getSectionCount());
+        for(String section : layout.getSectionNames()) {
+            output.putDouble(concert.getSectionPrice(section));
+        }
+
+        long[] bitmap = new long[words];
+        int[] owners = new int[bookedSeats.size()];
+        int nOwners = 0;
+        for(Seat seat : bookedSeats) {
+            Integer id = customerIds.get(concert.getCustomer(seat));
+            if(id == null) {
+                continue;
+            }
+            bitmap[seat.getIndex() >>> 6] |= 1L << seat.getIndex();
+            owners[nOwners++] = id;
+        }
+        output.putInt(words);
+        output.asLongBuffer().put(bitmap);
+        output.position(output.position() + 8 * words);
+
+        output.putInt(customerIds.size());
+        for(int id = 0; id < customerIds.size(); id++) {
+            output.putInt(names[id].length).put(names[id]).put(flags[id]);
+        }
+        output.asIntBuffer().put(owners, 0, nOwners);
+        output.position(output.position() + 4 * nOwners);
+        output.flip();
+        return output;
+    }
+
+    public static void write(ByteBuffer snapshot, File snapshotFile) throws IOException
+    {
+        ByteBuffer output = snapshot.duplicate();
+        File temp = AtomicFile.getTempFile(snapshotFile);
+        try(FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(output.hasRemaining()) {
+                channel.write(output);
+            }
+            channel.force(false);
+        }
+        AtomicFile.replace(temp, snapshotFile);
+    }
+
+    //Fills in the seats and customers of a concert, which must have no bookings yet,
+    //from a snapshot. Throws an IOException if the snapshot is damaged or was written
+    //for a different layout, in which case the text files should be read instead
+    public static void read(File snapshotFile, Concert concert) throws IOException
+    {
+        HallLayout layout = concert.getLayout();
+        try(FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(input.getInt() != MAGIC || input.getInt() != VERSION) {
+                throw new IOException("Unrecognised snapshot " + snapshotFile);
+            }
+            if(input.getInt() != layout.getTotalSeats() || input.getInt() != layout.getSectionCount()) {
+                throw new IOException("Snapshot " + snapshotFile + " does not match layout " + layout);
+            }
+            //The concert list is where prices are kept, the copy in the snapshot is skipped
+            input.position(input.position() + 8 * layout.getSectionCount());
+
+            int words = input.getInt();
+            if(words != (layout.getTotalSeats() + 63) >>> 6) {
+                throw new IOException("Snapshot " + snapshotFile + " does not match layout " + layout);
+            }
+            long[] bitmap = new long[words];
+            input.asLongBuffer().get(bitmap);
+            input.position(input.position() + 8 * words);
+
+            Customer[] customers = new Customer[input.getInt()];
+            for(int id = 0; id < customers.length; id++) {
+                byte[] name = new byte[input.getInt()];
+                input.get(name);
+                int flags = input.get();
+                customers[id] = new Customer(
+                        new String(name, StandardCharsets.UTF_8),
+                        (flags & GOLD_ENTITLED) != 0, (flags & SILVER_ENTITLED) != 0
+                );
+                if(!concert.restoreCustomer(customers[id])) {
+                    throw new IOException("Snapshot " + snapshotFile + " is damaged");
+                }
+            }
+
+            for(int word = 0; word < words; word++) {
+                long bits = bitmap[word];
+                while(bits != 0) {
+                    int seatIndex = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    int id = input.getInt();
+                    if(seatIndex >= layout.getTotalSeats() || id < 0 || id >= customers.length) {
+                        throw new IOException("Snapshot " + snapshotFile + " is damaged");
+                    }
+                    concert.restoreBooking(seatIndex, customers[id]);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        catch(BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot " + snapshotFile + " is damaged", e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package concerthallsystem.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TimerWheel class runs tasks after a delay, for any number of tasks, on one
+ * thread. Time is cut into ticks, and the wheel has four levels of 64 slots, the
+ * first level holding tasks due in the next 64 ticks, one slot per tick, the next
+ * holding tasks due in the next 64 * 64 ticks, one slot per 64 ticks, and so on.
+ * Each slot is a linked list, so scheduling or cancelling a task is a constant
+ * amount of work however many are waiting. On every tick the thread runs the tasks
+ * in the current slot of the first level, and each time a level has gone all the
+ * way round, the tasks in the next slot of the level above are moved down into
+ * the slots they are now close enough for. A task is run within one tick of its
+ * delay, and a delay longer than the wheel is moved down when it comes round again.
+ * The thread is only started once the first task is scheduled.
+ *
+ * @author Daniel Black
+ */
+
+public class TimerWheel
+{
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final long SPAN = 1L << (LEVELS * SLOT_BITS);
+
+    private final long tickNanos;
+    private final String threadName;
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private final long startTime = System.nanoTime();
+    private long currentTick = 0;
+    private int size = 0;
+    private Thread ticker;
+
+    public TimerWheel(long tickMillis, String threadName)
+    {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.threadName = threadName;
+    }
+
+    //Runs the task on the wheels thread once delayMillis have passed, unless it is cancelled first
+    public synchronized Timeout schedule(long delayMillis, Runnable task)
+    {
+        if(this.ticker == null) {
+            this.ticker = new Thread(this::tick, this.threadName);
+            this.ticker.setDaemon(true);
+            this.ticker.start();
+        }
+        //The current tick has already partly gone by, so one more is
+        //added to make sure the task is never run before its delay
+        long delayTicks = (TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)) + this.tickNanos - 1) / this.tickNanos;
+        Timeout timeout = new Timeout(this, this.ticksSinceStart() + delayTicks + 1, task);
+        this.insert(timeout);
+        this.size++;
+        return timeout;
+    }
+
+    public synchronized int size()
+    {
+        return this.size;
+    }
+
+    private long ticksSinceStart()
+    {
+        return (System.nanoTime() - this.startTime) / this.tickNanos;
+    }
+
+    //Puts the timeout in the slot of the lowest level that reaches its deadline,
+    //a deadline that is already due goes in the slot for the next tick
+    private void insert(Timeout timeout)
+    {
+        long deadline = Math.max(timeout.deadline, this.currentTick + 1);
+        long delta = Math.min(deadline - this.currentTick, SPAN - 1);
+        deadline = this.currentTick + delta;
+        int level = 0;
+        while(delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (deadline >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = this.slots[level][slot];
+        if(timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        this.slots[level][slot] = timeout;
+    }
+
+    private void remove(Timeout timeout)
+    {
+        if(timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        }
+        else {
+            this.slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if(timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    //Takes every timeout out of a slot, returning the first of them
+    private Timeout detach(int level, int slot)
+    {
+        Timeout first = this.slots[level][slot];
+        this.slots[level][slot] = null;
+        for(Timeout timeout = first; timeout != null; timeout = timeout.next) {
+            timeout.level = -1;
+        }
+        return first;
+    }
+
+    //Moves the wheel on to the tick that time has reached, returning the tasks now due
+    private synchronized List<Runnable> advance()
+    {
+        List<Runnable> due = new ArrayList<>();
+        long target = this.ticksSinceStart();
+        while(this.currentTick < target) {
+            this.currentTick++;
+            //Higher levels go first, so what they move down can be moved down again
+            for(int level = LEVELS - 1; level > 0; level--) {
+                if((this.currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    int slot = (int) (this.currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+                    Timeout timeout = this.detach(level, slot);
+                    while(timeout != null) {
+                        Timeout next = timeout.next;
+                        this.insert(timeout);
+                        timeout = next;
+                    }
+                }
+            }
+            Timeout timeout = this.detach(0, (int) this.currentTick & (SLOTS - 1));
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                timeout.previous = null;
+                timeout.fired = true;
+                due.add(timeout.task);
+                this.size--;
+                timeout = next;
+            }
+        }
+        return due;
+    }
+
+    private void tick()
+    {
+        long sleepMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(this.tickNanos));
+        while(true) {
+            try {
+                Thread.sleep(sleepMillis);
+            }
+            catch(InterruptedException e) {
+                return;
+            }
+            //Tasks are run outside the wheels lock, so they can schedule or cancel others
+            for(Runnable task : this.advance()) {
+                try {
+                    task.run();
+                }
+                catch(RuntimeException e) {
+                    System.out.println("Timer task failed: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A scheduled task, which can be cancelled until it has been run.
+     */
+    public static final class Timeout
+    {
+        private final TimerWheel wheel;
+        private final long deadline;
+        private final Runnable task;
+        private Timeout previous;
+        private Timeout next;
+        private int level = -1;
+        private int slot;
+        private boolean fired;
+        private boolean cancelled;
+
+        private Timeout(TimerWheel wheel, long deadline, Runnable task)
+        {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        //Stops the task from running, returns false if it has already run or been cancelled
+        public boolean cancel()
+        {
+            synchronized(this.wheel) {
+                if(this.fired || this.cancelled) {
+                    return false;
+                }
+                this.cancelled = true;
+                if(this.level >= 0) {
+                    this.wheel.remove(this);
+                }
+                this.wheel.size--;
+                return true;
+            }
+        }
+    }
+}
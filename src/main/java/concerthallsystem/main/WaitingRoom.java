@@ -0,0 +1,247 @@
+package concerthallsystem.main;
+
+import concerthallsystem.exceptions.WaitingRoomFullException;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The WaitingRoom class sits in front of the booking engine when a popular concert
+ * goes on sale, so that only a set number of bookings are in the engine at once and
+ * the rest wait their turn, rather than all of them fighting over the section locks
+ * and every booking slowing down together. People are let in strictly in the order
+ * they arrived, each one can ask how far back in the queue it is, and once the queue
+ * holds as many people as it can, anyone else is turned away straight away with a
+ * WaitingRoomFullException, so callers can back off instead of piling up.
+ * Each waiting ticket has its own condition, so letting one person in only wakes them.
+ *
+ * @author Daniel Black
+ */
+
+public class WaitingRoom
+{
+    private final int admissionLimit;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+    private long issued = 0;
+    private long lastLetIn = 0;
+    private int waiting = 0;
+    private int inside = 0;
+    private long turnedAway = 0;
+
+    public WaitingRoom(int admissionLimit, int capacity)
+    {
+        if(admissionLimit < 1 || capacity < 0) {
+            throw new IllegalArgumentException("A waiting room must let at least one booking in at a time");
+        }
+        this.admissionLimit = admissionLimit;
+        this.capacity = capacity;
+    }
+
+    //Joins the back of the queue, or goes straight in if no one is waiting and
+    //there is room inside. Throws a WaitingRoomFullException if the queue is full
+    public Ticket join()
+    {
+        this.lock.lock();
+        try {
+            if(this.waiting >= this.capacity && (this.waiting > 0 || this.inside >= this.admissionLimit)) {
+                this.turnedAway++;
+                throw new WaitingRoomFullException(this.capacity);
+            }
+            Ticket ticket = new Ticket(++this.issued);
+            this.queue.add(ticket);
+            this.waiting++;
+            this.letIn();
+            return ticket;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    //Waits for a turn, books the seat and leaves again, returns false if the seat
+    //was already booked. Throws a WaitingRoomFullException if the queue is full
+    public boolean bookSeat(Concert concert, Seat seat, String name) throws InterruptedException
+    {
+        try(Ticket ticket = this.join()) {
+            ticket.awaitTurn();
+            return concert.bookSeat(seat, name);
+        }
+    }
+
+    //Lets in the people at the front of the queue while there is room,
+    //skipping any that left before their turn. Called holding the lock
+    private void letIn()
+    {
+        while(this.inside < this.admissionLimit && !this.queue.isEmpty()) {
+            Ticket ticket = this.queue.poll();
+            this.lastLetIn = ticket.number;
+            if(ticket.left) {
+                continue;
+            }
+            ticket.inside = true;
+            this.waiting--;
+            this.inside++;
+            ticket.turn.signal();
+        }
+    }
+
+    private void leave(Ticket ticket)
+    {
+        this.lock.lock();
+        try {
+            if(ticket.left) {
+                return;
+            }
+            ticket.left = true;
+            if(ticket.inside) {
+                this.inside--;
+                this.letIn();
+            }
+            else {
+                this.waiting--;
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getAdmissionLimit()
+    {
+        return this.admissionLimit;
+    }
+
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    //The number of people waiting to be let in, it reaching the capacity is the signal to back off
+    public int getQueueLength()
+    {
+        this.lock.lock();
+        try {
+            return this.waiting;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getInsideCount()
+    {
+        this.lock.lock();
+        try {
+            return this.inside;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    public long getTurnedAwayCount()
+    {
+        this.lock.lock();
+        try {
+            return this.turnedAway;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * A place in the queue, numbered in the order people arrived. Closing the
+     * ticket leaves the waiting room, giving up its place or, once it has been
+     * let in, making room for the next person.
+     */
+    public final class Ticket implements AutoCloseable
+    {
+        private final long number;
+        private final Condition turn = lock.newCondition();
+        private boolean inside = false;
+        private boolean left = false;
+
+        private Ticket(long number)
+        {
+            this.number = number;
+        }
+
+        //How many people are ahead in the queue, 0 once let in. People ahead
+        //who have left but not yet been passed over are still counted, so this
+        //is at most the true position, worked out without walking the queue
+        public long getPosition()
+        {
+            lock.lock();
+            try {
+                return this.inside || this.left ? 0 : this.number - lastLetIn - 1;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isInside()
+        {
+            lock.lock();
+            try {
+                return this.inside && !this.left;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        public void awaitTurn() throws InterruptedException
+        {
+            lock.lock();
+            try {
+                while(!this.inside) {
+                    this.checkNotLeft();
+                    this.turn.await();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        //Waits up to the timeout for a turn, returns false if it has not come yet,
+        //in which case the ticket keeps its place unless it is closed
+        public boolean awaitTurn(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            long remaining = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while(!this.inside) {
+                    this.checkNotLeft();
+                    if(remaining <= 0) {
+                        return false;
+                    }
+                    remaining = this.turn.awaitNanos(remaining);
+                }
+                return true;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        private void checkNotLeft()
+        {
+            if(this.left) {
+                throw new IllegalStateException("Ticket " + this.number + " has already left the waiting room");
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            leave(this);
+        }
+    }
+}
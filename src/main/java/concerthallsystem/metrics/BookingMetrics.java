@@ -0,0 +1,160 @@
+package concerthallsystem.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The BookingMetrics class is the registry of counters and histograms for bookings,
+ * concert loads and saves, shared by the whole program and registered with the
+ * platform MBean server the first time it is used, so it can be watched with jconsole
+ * or any other JMX client. Recording only adds to counters and never allocates, so
+ * the hot paths can record every call. Latencies are recorded in nanoseconds.
+ *
+ * @author Daniel Black
+ */
+
+public class BookingMetrics implements BookingMetricsMXBean
+{
+    public static final String OBJECT_NAME = "concerthallsystem:type=BookingMetrics";
+    private static final BookingMetrics INSTANCE = register(new BookingMetrics());
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final LongAdder failedBookings = new LongAdder();
+    private final LongAdder parseErrors = new LongAdder();
+    private final LongAdder saveFailures = new LongAdder();
+    private final Histogram bookingLatency = new Histogram();
+    private final Histogram unBookingLatency = new Histogram();
+    private final Histogram loadLatency = new Histogram();
+    private final Histogram saveLatency = new Histogram();
+    private final Histogram bytesPerSave = new Histogram();
+    private volatile int residentConcerts;
+
+    private BookingMetrics()
+    {
+    }
+
+    public static BookingMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    private static BookingMetrics register(BookingMetrics metrics)
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        }
+        catch(JMException | SecurityException e) {
+            System.out.println("Could not register booking metrics: " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    public void recordBooking(long nanos)
+    {
+        this.bookingLatency.record(nanos);
+    }
+
+    public void recordFailedBooking()
+    {
+        this.failedBookings.increment();
+    }
+
+    public void recordUnBooking(long nanos)
+    {
+        this.unBookingLatency.record(nanos);
+    }
+
+    public void recordConcertLoad(long nanos)
+    {
+        this.loadLatency.record(nanos);
+    }
+
+    public void recordSave(long nanos, long bytes)
+    {
+        this.saveLatency.record(nanos);
+        this.bytesPerSave.record(bytes);
+    }
+
+    public void recordSaveFailure()
+    {
+        this.saveFailures.increment();
+    }
+
+    public void recordParseErrors(int errors)
+    {
+        this.parseErrors.add(errors);
+    }
+
+    public void setResidentConcerts(int concerts)
+    {
+        this.residentConcerts = concerts;
+    }
+
+    @Override
+    public long getBookings()
+    {
+        return this.bookingLatency.getCount();
+    }
+
+    @Override
+    public long getFailedBookings()
+    {
+        return this.failedBookings.sum();
+    }
+
+    @Override
+    public long getUnBookings()
+    {
+        return this.unBookingLatency.getCount();
+    }
+
+    @Override
+    public HistogramSnapshot getBookingLatency()
+    {
+        return this.bookingLatency.snapshot(NANOS_PER_MICRO);
+    }
+
+    @Override
+    public HistogramSnapshot getUnBookingLatency()
+    {
+        return this.unBookingLatency.snapshot(NANOS_PER_MICRO);
+    }
+
+    @Override
+    public HistogramSnapshot getConcertLoadLatency()
+    {
+        return this.loadLatency.snapshot(NANOS_PER_MICRO);
+    }
+
+    @Override
+    public HistogramSnapshot getSaveLatency()
+    {
+        return this.saveLatency.snapshot(NANOS_PER_MICRO);
+    }
+
+    @Override
+    public HistogramSnapshot getBytesPerSave()
+    {
+        return this.bytesPerSave.snapshot(1);
+    }
+
+    @Override
+    public long getParseErrors()
+    {
+        return this.parseErrors.sum();
+    }
+
+    @Override
+    public long getSaveFailures()
+    {
+        return this.saveFailures.sum();
+    }
+
+    @Override
+    public int getResidentConcerts()
+    {
+        return this.residentConcerts;
+    }
+}
@@ -0,0 +1,34 @@
+package concerthallsystem.metrics;
+
+/**
+ * The BookingMetricsMXBean interface is what the metrics.BookingMetrics registry
+ * shows over JMX, under the name concerthallsystem:type=BookingMetrics.
+ * Latencies are in microseconds, sizes in bytes.
+ *
+ * @author Daniel Black
+ */
+
+public interface BookingMetricsMXBean
+{
+    long getBookings();
+
+    long getFailedBookings();
+
+    long getUnBookings();
+
+    HistogramSnapshot getBookingLatency();
+
+    HistogramSnapshot getUnBookingLatency();
+
+    HistogramSnapshot getConcertLoadLatency();
+
+    HistogramSnapshot getSaveLatency();
+
+    HistogramSnapshot getBytesPerSave();
+
+    long getParseErrors();
+
+    long getSaveFailures();
+
+    int getResidentConcerts();
+}
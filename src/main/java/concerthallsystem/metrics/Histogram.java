@@ -0,0 +1,83 @@
+package concerthallsystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Histogram class counts recorded values, such as latencies in nanoseconds
+ * or sizes in bytes, in buckets whose bounds double each time, so bucket n holds
+ * the values from 2^n up to 2^(n+1) - 1. Recording a value is a handful of atomic
+ * adds and never allocates, so it can be done on every booking. Percentiles read
+ * from the buckets are rounded up to the top of their bucket, within a factor of two,
+ * but never past the largest value recorded.
+ *
+ * @author Daniel Black
+ */
+
+public class Histogram
+{
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value)
+    {
+        if(value < 0) {
+            value = 0;
+        }
+        this.buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+        this.count.increment();
+        this.sum.add(value);
+        long seen = this.max.get();
+        while(value > seen && !this.max.compareAndSet(seen, value)) {
+            seen = this.max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    //The recorded values so far, divided by the unit, e.g. 1000 to turn nanoseconds
+    //into microseconds. Recording carries on while the snapshot is taken, so the
+    //counts may be a few values apart
+    public HistogramSnapshot snapshot(long unit)
+    {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+        long recorded = this.count.sum();
+        double mean = recorded == 0 ? 0 : (double) this.sum.sum() / recorded / unit;
+        long max = this.max.get();
+        return new HistogramSnapshot(
+                recorded, mean,
+                Math.min(percentile(counts, total, 0.50), max) / unit,
+                Math.min(percentile(counts, total, 0.99), max) / unit,
+                max / unit
+        );
+    }
+
+    private static long percentile(long[] counts, long total, double fraction)
+    {
+        if(total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,60 @@
+package concerthallsystem.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The HistogramSnapshot class is a summary of a metrics.Histogram at one moment,
+ * shown by JMX clients such as jconsole as a table of its values.
+ *
+ * @author Daniel Black
+ */
+
+public class HistogramSnapshot
+{
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long max;
+
+    @ConstructorProperties({"count", "mean", "p50", "p99", "max"})
+    public HistogramSnapshot(long count, double mean, long p50, long p99, long max)
+    {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    public double getMean()
+    {
+        return this.mean;
+    }
+
+    public long getP50()
+    {
+        return this.p50;
+    }
+
+    public long getP99()
+    {
+        return this.p99;
+    }
+
+    public long getMax()
+    {
+        return this.max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + this.count + " mean=" + this.mean + " p50=" + this.p50 + " p99=" + this.p99 + " max=" + this.max;
+    }
+}
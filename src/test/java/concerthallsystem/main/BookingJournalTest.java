@@ -0,0 +1,198 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that main.BookingJournal replays what was logged, that compacting keeps
+ * the lines after the saved ticket, and that a concert gets its bookings back
+ * from its journal after being unloaded.
+ *
+ * @author Daniel Black
+ */
+
+public class BookingJournalTest
+{
+    @TempDir
+    File dir;
+
+    //Collects the replayed lines in the form they are written in
+    private static class Lines implements BookingJournal.Replay
+    {
+        private final List<String> lines = new ArrayList<>();
+
+        @Override
+        public void booked(int seatIndex, boolean goldEntitled, boolean silverEntitled, String name)
+        {
+            this.lines.add("B " + seatIndex + " " + goldEntitled + " " + silverEntitled + " " + name);
+        }
+
+        @Override
+        public void unBooked(int seatIndex)
+        {
+            this.lines.add("U " + seatIndex);
+        }
+
+        @Override
+        public void priceChanged(int section, double price)
+        {
+            this.lines.add(BookingJournal.priceRecord(section, price));
+        }
+    }
+
+    private File journalFile()
+    {
+        return BookingJournal.getFile(this.dir);
+    }
+
+    private List<String> replay() throws IOException
+    {
+        Lines replayed = new Lines();
+        assertEquals(BookingJournal.replay(this.journalFile(), replayed), replayed.lines.size());
+        return replayed.lines;
+    }
+
+    @Test
+    public void replaysWhatWasLogged() throws IOException
+    {
+        try(BookingJournal journal = new BookingJournal(this.journalFile(), 0)) {
+            journal.logBooking(4, new Customer("Zoë Ó Briain", true, false));
+            journal.logBooking(31, new Customer("Ann  Lee", false, true));
+            journal.logUnBooking(4);
+            long ticket = journal.logPrice(1, 32.5);
+            assertEquals(4, ticket);
+            assertEquals(ticket, journal.mark());
+            journal.awaitDurable(ticket);
+            assertEquals(4, journal.size());
+            assertFalse(journal.hasFailed());
+        }
+        assertEquals(List.of(
+                "B 4 true false Zoë Ó Briain",
+                "B 31 false true Ann  Lee",
+                "U 4",
+                "P 1 32.5"
+        ), this.replay());
+    }
+
+    @Test
+    public void closeWritesQueuedLines() throws IOException
+    {
+        try(BookingJournal journal = new BookingJournal(this.journalFile(), 0)) {
+            journal.logUnBooking(7);
+        }
+        assertEquals(List.of("U 7"), this.replay());
+    }
+
+    @Test
+    public void missingJournalReplaysNothing() throws IOException
+    {
+        assertTrue(this.replay().isEmpty());
+    }
+
+    @Test
+    public void compactingKeepsTheLinesAfterTheTicket() throws IOException
+    {
+        try(BookingJournal journal = new BookingJournal(this.journalFile(), 0)) {
+            journal.logBooking(1, new Customer("Ann"));
+            long saved = journal.logBooking(2, new Customer("Bob"));
+            journal.logUnBooking(1);
+            journal.awaitDurable(journal.mark());
+            journal.logBooking(3, new Customer("Cat"));
+
+            journal.compact(saved, List.of("P 0 50.0", "P 1 30.0"));
+            assertEquals(2, journal.size());
+            assertEquals(List.of("P 0 50.0", "P 1 30.0", "U 1", "B 3 false false Cat"), this.replay());
+
+            //Compacting again drops the old header along with the lines up to the ticket
+            long next = journal.logUnBooking(3);
+            journal.awaitDurable(next);
+            journal.compact(journal.mark() - 1, List.of("P 2 20.0"));
+            assertEquals(1, journal.size());
+            journal.logUnBooking(2);
+            journal.compact(saved, List.of());
+        }
+        assertEquals(List.of("P 2 20.0", "U 3", "U 2"), this.replay());
+    }
+
+    @Test
+    public void replayStopsAtATornLine() throws IOException
+    {
+        String text = "B 1 false false Ann\nU 1\nB 2 false fa";
+        Files.write(this.journalFile().toPath(), text.getBytes(StandardCharsets.UTF_8));
+        Lines replayed = new Lines();
+        int lines = BookingJournal.replay(this.journalFile(), replayed);
+        assertEquals(2, lines);
+
+        //Reopening cuts off the torn line, so the next line starts on a line of its own
+        try(BookingJournal journal = new BookingJournal(this.journalFile(), lines)) {
+            journal.logBooking(2, new Customer("Bob"));
+        }
+        assertEquals(List.of("B 1 false false Ann", "U 1", "B 2 false false Bob"), this.replay());
+    }
+
+    @Test
+    public void replayStopsAtAnUnreadableLine() throws IOException
+    {
+        String text = "U 1\nX 2\nU 3\n";
+        Files.write(this.journalFile().toPath(), text.getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("U 1"), this.replay());
+    }
+
+    @Test
+    public void concertGetsItsBookingsBackFromTheJournal() throws IOException
+    {
+        File listFile = new File(this.dir, "Concerts.txt");
+        Files.write(listFile.toPath(), List.of("Gig 2026-01-01 50.00 30.00 20.00"));
+        Concert concert;
+        try(RecordReader reader = new RecordReader(listFile)) {
+            reader.nextLine();
+            concert = Concert.load(reader, this.dir.getPath(), 1);
+        }
+        concert.loadBookings();
+        concert.bookSeat(concert.getSeat("A", 1), "Ann Lee");
+        concert.bookSeat(concert.getSeat("E", 5), "Bob");
+        concert.bookSeat(concert.getSeat("E", 6), "Bob");
+        concert.unBookSeat(concert.getSeat("E", 5));
+        concert.setSectionPrice("Silver", 35.0);
+        List<String> booked = seatRecords(concert);
+
+        assertTrue(concert.unload());
+        assertFalse(concert.isLoaded());
+        concert.loadBookings();
+        assertEquals(booked, seatRecords(concert));
+        assertEquals(35.0, concert.getSectionPrice("Silver"));
+
+        //Once saved, the journal only holds the prices, and the text files the bookings
+        assertTrue(concert.save(this.dir.getPath()));
+        File concertDirectory = new File(this.dir, "Gig 2026-01-01");
+        Lines replayed = new Lines();
+        BookingJournal.replay(BookingJournal.getFile(concertDirectory), replayed);
+        for(String line : replayed.lines) {
+            assertTrue(line.startsWith("P "), line);
+        }
+        assertTrue(concert.unload());
+        concert.loadBookings();
+        assertEquals(booked, seatRecords(concert));
+        concert.discard();
+    }
+
+    private static List<String> seatRecords(Concert concert)
+    {
+        List<String> records = new ArrayList<>();
+        for(Seat seat : concert.getBookedSeats()) {
+            records.add(seat.toRecord(concert.getCustomer(seat)));
+        }
+        return records;
+    }
+}
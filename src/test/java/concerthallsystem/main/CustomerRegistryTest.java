@@ -0,0 +1,123 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the name index, the customer ids and the search as a name is typed
+ * of main.CustomerRegistry.
+ *
+ * @author Daniel Black
+ */
+
+public class CustomerRegistryTest
+{
+    private final CustomerRegistry registry = new CustomerRegistry();
+
+    private void addAll(String... names)
+    {
+        for(String name : names) {
+            assertTrue(this.registry.add(new Customer(name)), name);
+        }
+    }
+
+    private List<String> search(String text, int limit)
+    {
+        List<String> names = new ArrayList<>();
+        for(Customer customer : this.registry.search(text, limit)) {
+            names.add(customer.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void normalizesWhitespaceAndCase()
+    {
+        assertEquals("john smith", CustomerRegistry.normalize("  John \t SMITH "));
+        assertEquals("", CustomerRegistry.normalize("   "));
+    }
+
+    @Test
+    public void namesThatNormalizeAlikeAreOneCustomer()
+    {
+        this.addAll("John Smith");
+        assertFalse(this.registry.add(new Customer("john  smith")));
+        assertEquals(1, this.registry.size());
+        assertEquals("John Smith", this.registry.find(" JOHN SMITH").getName());
+        assertNull(this.registry.find("John"));
+        assertNull(this.registry.find(null));
+    }
+
+    @Test
+    public void customersAreFoundByTheirId()
+    {
+        Customer ann = new Customer("Ann");
+        Customer bob = new Customer("Bob");
+        this.registry.add(ann);
+        this.registry.add(bob);
+        assertSame(ann, this.registry.get(ann.getId()));
+        assertSame(bob, this.registry.get(bob.getId()));
+        assertNull(this.registry.get(-1));
+        assertNull(this.registry.get(1000));
+    }
+
+    @Test
+    public void idOfAnUnbookedCustomerIsHandedOutAgain()
+    {
+        Seat seat = new Seat("A", 1);
+        Customer ann = this.registry.book("Ann", seat);
+        int id = ann.getId();
+        this.registry.unBook("ann", seat);
+        assertEquals(0, this.registry.size());
+        assertNull(this.registry.get(id));
+        assertTrue(this.search("ann", 10).isEmpty());
+
+        Customer bob = this.registry.book("Bob", new Seat("A", 2));
+        assertEquals(id, bob.getId());
+        assertSame(bob, this.registry.get(id));
+    }
+
+    //Later word matches are in the order of the word that matched, then of the whole name
+    @Test
+    public void wholeNameMatchesComeBeforeLaterWords()
+    {
+        this.addAll("John Smith", "Smith Jones", "Ann Smithers", "Smyth", "Bob Brown");
+        assertEquals(List.of("Smith Jones", "Smyth", "John Smith", "Ann Smithers"), this.search("sm", 10));
+        assertEquals(List.of("Smith Jones", "John Smith", "Ann Smithers"), this.search(" SMITH", 10));
+        assertEquals(List.of("Smith Jones"), this.search("smith j", 10));
+        assertTrue(this.search("x", 10).isEmpty());
+    }
+
+    @Test
+    public void searchStopsAtTheLimit()
+    {
+        this.addAll("Ann Lee", "Anna Lee", "Bob Ann", "Cat Annis");
+        assertEquals(List.of("Ann Lee", "Anna Lee"), this.search("ann", 2));
+        assertEquals(List.of("Ann Lee", "Anna Lee", "Bob Ann"), this.search("ann", 3));
+        assertTrue(this.search("ann", 0).isEmpty());
+    }
+
+    @Test
+    public void customerIsListedOnce()
+    {
+        this.addAll("Smith Smith", "Sam Smith Smith");
+        assertEquals(List.of("Smith Smith", "Sam Smith Smith"), this.search("smith", 10));
+    }
+
+    @Test
+    public void namesSharingAHashAreBothListed()
+    {
+        assertEquals(CustomerRegistry.normalize("Bearcy Smith").hashCode(),
+                CustomerRegistry.normalize("D'Arcy Smith").hashCode());
+        this.addAll("D'Arcy Smith", "Bearcy Smith");
+        assertEquals(List.of("Bearcy Smith", "D'Arcy Smith"), this.search("smi", 10));
+    }
+}
@@ -0,0 +1,116 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests main.FreeRunIndex on the default hall, whose Gold section is
+ * rows A, B and C of ten seats each, seat indexes 0 to 29.
+ *
+ * @author Daniel Black
+ */
+
+public class FreeRunIndexTest
+{
+    private static final int GOLD = 0;
+    private static final int SILVER = 1;
+    private FreeRunIndex freeRuns;
+
+    @BeforeEach
+    public void setUp()
+    {
+        this.freeRuns = new FreeRunIndex(HallLayout.DEFAULT);
+    }
+
+    private void book(int firstSeat, int lastSeat)
+    {
+        for(int seat = firstSeat; seat <= lastSeat; seat++) {
+            this.freeRuns.book(seat);
+        }
+    }
+
+    @Test
+    public void emptySectionGivesTheMiddleOfTheFirstRow()
+    {
+        assertEquals(3, this.freeRuns.findBlock(GOLD, 4, RowPreference.FRONT));
+        assertEquals(0, this.freeRuns.findBlock(GOLD, 10, RowPreference.FRONT));
+    }
+
+    @Test
+    public void backAndMiddleStartFromTheirRows()
+    {
+        assertEquals(20, this.freeRuns.findBlock(GOLD, 10, RowPreference.BACK));
+        assertEquals(10, this.freeRuns.findBlock(GOLD, 10, RowPreference.MIDDLE));
+    }
+
+    @Test
+    public void middleFallsBackToTheNearestRowWithRoom()
+    {
+        this.book(10, 10);
+        assertEquals(20, this.freeRuns.findBlock(GOLD, 10, RowPreference.MIDDLE));
+        this.book(20, 20);
+        assertEquals(0, this.freeRuns.findBlock(GOLD, 10, RowPreference.MIDDLE));
+    }
+
+    @Test
+    public void partyLargerThanAnyRunIsNotFound()
+    {
+        assertEquals(-1, this.freeRuns.findBlock(GOLD, 11, RowPreference.FRONT));
+        assertEquals(-1, this.freeRuns.findBlock(GOLD, 11, RowPreference.MIDDLE));
+        assertEquals(-1, this.freeRuns.findBlock(GOLD, 11, RowPreference.BACK));
+    }
+
+    @Test
+    public void emptyPartyIsNotFound()
+    {
+        assertEquals(-1, this.freeRuns.findBlock(GOLD, 0, RowPreference.FRONT));
+    }
+
+    @Test
+    public void fullSectionHasNoRoomButOthersDo()
+    {
+        this.book(0, 29);
+        for(RowPreference preference : RowPreference.values()) {
+            assertEquals(-1, this.freeRuns.findBlock(GOLD, 1, preference));
+        }
+        assertEquals(30, this.freeRuns.findBlock(SILVER, 10, RowPreference.FRONT));
+    }
+
+    @Test
+    public void blockFitsBetweenBookedSeats()
+    {
+        //Row A is left with runs of 5 (seats 0 to 4) and 4 (seats 6 to 9)
+        this.book(5, 5);
+        assertEquals(0, this.freeRuns.findBlock(GOLD, 5, RowPreference.FRONT));
+        //Of the places for four, seats 1 to 4 start nearest the middle of the row
+        assertEquals(1, this.freeRuns.findBlock(GOLD, 4, RowPreference.FRONT));
+        this.book(1, 1);
+        //With seat 1 booked too, seats 6 to 9 are the only four together
+        assertEquals(6, this.freeRuns.findBlock(GOLD, 4, RowPreference.FRONT));
+        assertEquals(12, this.freeRuns.findBlock(GOLD, 6, RowPreference.FRONT));
+    }
+
+    @Test
+    public void lastFitFindsTheLastRowWithRoom()
+    {
+        this.book(20, 29);
+        this.book(12, 12);
+        //Row C is full and row B's longest run is seats 13 to 19
+        assertEquals(13, this.freeRuns.findBlock(GOLD, 7, RowPreference.BACK));
+        assertEquals(1, this.freeRuns.findBlock(GOLD, 8, RowPreference.BACK));
+    }
+
+    @Test
+    public void freedSeatsCanBeFoundAgain()
+    {
+        this.book(0, 29);
+        this.freeRuns.free(24);
+        this.freeRuns.free(25);
+        assertEquals(24, this.freeRuns.findBlock(GOLD, 2, RowPreference.FRONT));
+        assertEquals(-1, this.freeRuns.findBlock(GOLD, 3, RowPreference.FRONT));
+        this.freeRuns.free(23);
+        assertEquals(23, this.freeRuns.findBlock(GOLD, 3, RowPreference.FRONT));
+    }
+}
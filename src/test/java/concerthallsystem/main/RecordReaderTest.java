@@ -0,0 +1,199 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests main.RecordReader, in particular the number parsing it does straight
+ * from the bytes of a line and the cases it leaves to Double.parseDouble.
+ *
+ * @author Daniel Black
+ */
+
+public class RecordReaderTest
+{
+    @TempDir
+    File dir;
+
+    //Writes the text to a file and returns a reader positioned on its first line
+    private RecordReader read(String text) throws IOException
+    {
+        File file = new File(this.dir, "Records.txt");
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        RecordReader reader = new RecordReader(file, StandardCharsets.UTF_8);
+        assertTrue(reader.nextLine());
+        return reader;
+    }
+
+    @Test
+    public void readsSignedInts() throws IOException
+    {
+        try(RecordReader reader = this.read("42 -7 +3 0 999999999\n")) {
+            assertEquals(42, reader.nextInt());
+            assertEquals(-7, reader.nextInt());
+            assertEquals(3, reader.nextInt());
+            assertEquals(0, reader.nextInt());
+            assertEquals(999_999_999, reader.nextInt());
+            assertFalse(reader.hasNextToken());
+        }
+    }
+
+    @Test
+    public void rejectsIntsThatAreNotNumbers() throws IOException
+    {
+        try(RecordReader reader = this.read("1234567890 - 12a\n")) {
+            assertThrows(NumberFormatException.class, reader::nextInt);
+            reader.nextToken();
+            assertThrows(NumberFormatException.class, reader::nextInt);
+            reader.nextToken();
+            assertThrows(NumberFormatException.class, reader::nextInt);
+        }
+    }
+
+    @Test
+    public void readsPlainDecimals() throws IOException
+    {
+        try(RecordReader reader = this.read("12.50 -0.25 +7 3. .5 -19.99\n")) {
+            assertEquals(12.5, reader.nextDouble());
+            assertEquals(-0.25, reader.nextDouble());
+            assertEquals(7.0, reader.nextDouble());
+            assertEquals(3.0, reader.nextDouble());
+            assertEquals(0.5, reader.nextDouble());
+            assertEquals(-19.99, reader.nextDouble());
+        }
+    }
+
+    @Test
+    public void leavesExponentsAndLongNumbersToParseDouble() throws IOException
+    {
+        try(RecordReader reader = this.read("1e3 2.5E-2 -4.5e1 1234567890.1234567 0.1234567890123456789\n")) {
+            assertFalse(reader.hasNextDouble());
+            assertEquals(1000.0, reader.nextDouble());
+            assertEquals(0.025, reader.nextDouble());
+            assertEquals(-45.0, reader.nextDouble());
+            assertEquals(1234567890.1234567, reader.nextDouble());
+            assertEquals(0.1234567890123456789, reader.nextDouble());
+        }
+    }
+
+    @Test
+    public void rejectsDoublesThatAreNotNumbers() throws IOException
+    {
+        try(RecordReader reader = this.read("1.2.3 - abc\n")) {
+            assertFalse(reader.hasNextDouble());
+            assertThrows(NumberFormatException.class, reader::nextDouble);
+        }
+        try(RecordReader reader = this.read("-\n")) {
+            assertFalse(reader.hasNextDouble());
+            assertThrows(NumberFormatException.class, reader::nextDouble);
+        }
+    }
+
+    @Test
+    public void recognisesDecimalsBeforeReadingThem() throws IOException
+    {
+        try(RecordReader reader = this.read("-1.5 20 Gold\n")) {
+            assertTrue(reader.hasNextDouble());
+            reader.nextDouble();
+            assertTrue(reader.hasNextDouble());
+            reader.nextDouble();
+            assertFalse(reader.hasNextDouble());
+        }
+    }
+
+    @Test
+    public void readsBooleansIgnoringCase() throws IOException
+    {
+        try(RecordReader reader = this.read("true FALSE True yes\n")) {
+            assertTrue(reader.nextBoolean());
+            assertFalse(reader.nextBoolean());
+            assertTrue(reader.nextBoolean());
+            assertFalse(reader.hasNextBoolean());
+            assertThrows(NoSuchElementException.class, reader::nextBoolean);
+        }
+    }
+
+    @Test
+    public void recognisesDates() throws IOException
+    {
+        try(RecordReader reader = this.read("2026-01-31 2026-1-31 2026/01/31\n")) {
+            assertTrue(reader.hasNextDate());
+            assertEquals("2026-01-31", reader.nextToken());
+            assertFalse(reader.hasNextDate());
+            reader.nextToken();
+            assertFalse(reader.hasNextDate());
+        }
+    }
+
+    @Test
+    public void restKeepsInnerSpacesOnly() throws IOException
+    {
+        try(RecordReader reader = this.read("A1   Ann  Lee Ó Súilleabháin \t\n")) {
+            assertTrue(reader.nextTokenStartsWith('A'));
+            assertEquals("A1", reader.nextToken());
+            assertEquals("Ann  Lee Ó Súilleabháin", reader.rest());
+            assertTrue(reader.isBlank());
+            assertThrows(NoSuchElementException.class, reader::nextToken);
+        }
+    }
+
+    @Test
+    public void readsWindowsLineEndingsAndBlankLines() throws IOException
+    {
+        try(RecordReader reader = this.read("1 2\r\n\r\n   \n3\r\n")) {
+            assertEquals(1, reader.nextInt());
+            assertEquals(2, reader.nextInt());
+            assertTrue(reader.isBlank());
+            assertTrue(reader.nextLine());
+            assertTrue(reader.isBlank());
+            assertTrue(reader.nextLine());
+            assertTrue(reader.isBlank());
+            assertTrue(reader.nextLine());
+            assertEquals(4, reader.getLineNumber());
+            assertEquals(3, reader.nextInt());
+            assertTrue(reader.isLineTerminated());
+            assertFalse(reader.nextLine());
+        }
+    }
+
+    @Test
+    public void marksAnUnterminatedLastLine() throws IOException
+    {
+        try(RecordReader reader = this.read("first\nsecond")) {
+            assertTrue(reader.isLineTerminated());
+            assertTrue(reader.nextLine());
+            assertEquals("second", reader.rest());
+            assertFalse(reader.isLineTerminated());
+            assertFalse(reader.nextLine());
+        }
+    }
+
+    @Test
+    public void readsLinesLongerThanTheBuffer() throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 20_000; i++) {
+            text.append(i).append(' ');
+        }
+        text.append("\nlast\n");
+        try(RecordReader reader = this.read(text.toString())) {
+            for(int i = 0; i < 20_000; i++) {
+                assertEquals(i, reader.nextInt());
+            }
+            assertTrue(reader.isBlank());
+            assertTrue(reader.nextLine());
+            assertEquals("last", reader.nextToken());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests main.SeatIndexSet both while it keeps a sorted array and after it has
+ * switched to a bitmap, checking it against a TreeSet of the same indexes.
+ *
+ * @author Daniel Black
+ */
+
+public class SeatIndexSetTest
+{
+    private final SeatIndexSet seats = new SeatIndexSet();
+    private final TreeSet<Integer> expected = new TreeSet<>();
+
+    private void add(int seatIndex)
+    {
+        assertEquals(this.expected.add(seatIndex), this.seats.add(seatIndex), "add " + seatIndex);
+    }
+
+    private void remove(int seatIndex)
+    {
+        assertEquals(this.expected.remove(seatIndex), this.seats.remove(seatIndex), "remove " + seatIndex);
+    }
+
+    private void assertSameSeats()
+    {
+        assertEquals(this.expected.size(), this.seats.size());
+        assertArrayEquals(this.expected.stream().mapToInt(Integer::intValue).toArray(), this.seats.toArray());
+    }
+
+    @Test
+    public void emptySetHasNoSeats()
+    {
+        assertEquals(0, this.seats.size());
+        assertEquals(0, this.seats.toArray().length);
+        assertFalse(this.seats.contains(0));
+        assertFalse(this.seats.remove(0));
+    }
+
+    @Test
+    public void fewSeatsAreKeptInOrder()
+    {
+        this.add(40);
+        this.add(3);
+        this.add(17);
+        this.add(3);
+        assertTrue(this.seats.contains(17));
+        assertFalse(this.seats.contains(18));
+        this.assertSameSeats();
+
+        this.remove(3);
+        this.remove(3);
+        this.assertSameSeats();
+    }
+
+    @Test
+    public void denseSeatsSwitchToTheBitmap()
+    {
+        for(int seatIndex = 89; seatIndex >= 0; seatIndex -= 2) {
+            this.add(seatIndex);
+        }
+        for(int seatIndex = 0; seatIndex < 90; seatIndex++) {
+            assertEquals(seatIndex % 2 == 1, this.seats.contains(seatIndex), "contains " + seatIndex);
+        }
+        this.add(45);
+        this.remove(1);
+        this.remove(0);
+        this.remove(89);
+        this.assertSameSeats();
+    }
+
+    @Test
+    public void bitmapGrowsPastItsHighestSeat()
+    {
+        for(int seatIndex = 0; seatIndex < 30; seatIndex++) {
+            this.add(seatIndex);
+        }
+        this.add(1000);
+        this.add(640);
+        assertFalse(this.seats.contains(5000));
+        assertFalse(this.seats.remove(5000));
+        this.assertSameSeats();
+    }
+
+    @Test
+    public void sparseSeatsStayInTheArray()
+    {
+        for(int seatIndex = 0; seatIndex < 20; seatIndex++) {
+            this.add(seatIndex * 10_000);
+        }
+        assertTrue(this.seats.contains(190_000));
+        assertFalse(this.seats.contains(190_001));
+        this.remove(0);
+        this.assertSameSeats();
+    }
+
+    @Test
+    public void randomChangesMatchATreeSet()
+    {
+        Random random = new Random(42);
+        for(int i = 0; i < 5000; i++) {
+            int seatIndex = random.nextInt(300);
+            if(random.nextInt(3) == 0) {
+                this.remove(seatIndex);
+            }
+            else {
+                this.add(seatIndex);
+            }
+            assertEquals(this.expected.contains(seatIndex), this.seats.contains(seatIndex));
+        }
+        this.assertSameSeats();
+    }
+}
@@ -0,0 +1,156 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a main.SnapshotFile holds the same bookings as the text files,
+ * and that a concert only reads its snapshot while it is up to date.
+ *
+ * @author Daniel Black
+ */
+
+public class SnapshotFileTest
+{
+    private static final String CONCERT_LINE = "Gig 2026-01-01 50.00 30.00 20.00";
+
+    @TempDir
+    File dir;
+
+    //The booked seats of a concert as seat lines, with each customers entitlements
+    private static List<String> bookings(Concert concert)
+    {
+        List<String> lines = new ArrayList<>();
+        for(Seat seat : concert.getBookedSeats()) {
+            Customer customer = concert.getCustomer(seat);
+            lines.add(seat.toRecord(customer) + " " + customer.isGoldEntitled() + " " + customer.isSilverEntitled());
+        }
+        return lines;
+    }
+
+    private static Concert bookedConcert()
+    {
+        Concert concert = new Concert("Gig", "2026-01-01");
+        concert.restoreCustomer(new Customer("Zoë Ó Briain", true, true));
+        concert.restoreCustomer(new Customer("Ann Lee", false, false));
+        concert.bookSeat(concert.getSeat("A", 1), "Zoë Ó Briain");
+        concert.bookSeat(concert.getSeat("D", 10), "Zoë Ó Briain");
+        concert.bookSeat(concert.getSeat("G", 5), "Ann Lee");
+        concert.bookSeat(concert.getSeat("I", 10), "Bob");
+        return concert;
+    }
+
+    //Loads the concert on the concert line from the test directory, as the concert list would
+    private Concert loadConcert() throws IOException
+    {
+        File listFile = new File(this.dir, "Concerts.txt");
+        Files.write(listFile.toPath(), List.of(CONCERT_LINE));
+        try(RecordReader reader = new RecordReader(listFile)) {
+            reader.nextLine();
+            Concert concert = Concert.load(reader, this.dir.getPath(), 1);
+            concert.loadBookings();
+            return concert;
+        }
+    }
+
+    //Writes the Customers.txt and Booked_seats.txt files of the concert, with one seat booked by Cat
+    private File writeTextFiles() throws IOException
+    {
+        File concertDirectory = new File(this.dir, "Gig 2026-01-01");
+        concertDirectory.mkdir();
+        Charset charset = Charset.defaultCharset();
+        Files.write(new File(concertDirectory, "Customers.txt").toPath(), List.of("Cat false true"), charset);
+        Files.write(new File(concertDirectory, "Booked_seats.txt").toPath(), List.of("E 3 Cat"), charset);
+        return concertDirectory;
+    }
+
+    @Test
+    public void snapshotHoldsTheSameBookings() throws IOException
+    {
+        Concert concert = bookedConcert();
+        File snapshotFile = new File(this.dir, SnapshotFile.FILE_NAME);
+        SnapshotFile.write(concert, snapshotFile);
+
+        Concert copy = new Concert("Gig", "2026-01-01");
+        SnapshotFile.read(snapshotFile, copy);
+        assertEquals(bookings(concert), bookings(copy));
+        assertEquals(3, copy.getCustomers().size());
+        assertEquals("A 1 Zoë Ó Briain true true", bookings(copy).get(0));
+        assertEquals("G 5 Ann Lee false false", bookings(copy).get(2));
+    }
+
+    @Test
+    public void emptyConcertRoundTrips() throws IOException
+    {
+        File snapshotFile = new File(this.dir, SnapshotFile.FILE_NAME);
+        SnapshotFile.write(new Concert("Gig", "2026-01-01"), snapshotFile);
+
+        Concert copy = new Concert("Gig", "2026-01-01");
+        SnapshotFile.read(snapshotFile, copy);
+        assertTrue(copy.getBookedSeats().isEmpty());
+        assertTrue(copy.getCustomers().isEmpty());
+    }
+
+    @Test
+    public void damagedSnapshotIsRejected() throws IOException
+    {
+        File snapshotFile = new File(this.dir, SnapshotFile.FILE_NAME);
+        SnapshotFile.write(bookedConcert(), snapshotFile);
+        byte[] bytes = Files.readAllBytes(snapshotFile.toPath());
+        Files.write(snapshotFile.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> SnapshotFile.read(snapshotFile, new Concert("Gig", "2026-01-01")));
+
+        Files.write(snapshotFile.toPath(), "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> SnapshotFile.read(snapshotFile, new Concert("Gig", "2026-01-01")));
+    }
+
+    @Test
+    public void snapshotOlderThanTheTextFilesIsIgnored() throws IOException
+    {
+        File concertDirectory = this.writeTextFiles();
+        File snapshotFile = new File(concertDirectory, SnapshotFile.FILE_NAME);
+        SnapshotFile.write(bookedConcert(), snapshotFile);
+        long textWritten = new File(concertDirectory, "Booked_seats.txt").lastModified();
+        assertTrue(snapshotFile.setLastModified(textWritten - 60_000));
+
+        assertEquals(List.of("E 3 Cat false true"), bookings(this.loadConcert()));
+    }
+
+    @Test
+    public void snapshotNewerThanTheTextFilesIsRead() throws IOException
+    {
+        File concertDirectory = this.writeTextFiles();
+        File snapshotFile = new File(concertDirectory, SnapshotFile.FILE_NAME);
+        Concert concert = bookedConcert();
+        SnapshotFile.write(concert, snapshotFile);
+        long textWritten = new File(concertDirectory, "Customers.txt").lastModified();
+        assertTrue(snapshotFile.setLastModified(textWritten + 60_000));
+
+        assertEquals(bookings(concert), bookings(this.loadConcert()));
+    }
+
+    @Test
+    public void damagedSnapshotFallsBackToTheTextFiles() throws IOException
+    {
+        File concertDirectory = this.writeTextFiles();
+        File snapshotFile = new File(concertDirectory, SnapshotFile.FILE_NAME);
+        Files.write(snapshotFile.toPath(), new byte[] {0x43, 0x48});
+        long textWritten = new File(concertDirectory, "Customers.txt").lastModified();
+        assertTrue(snapshotFile.setLastModified(textWritten + 60_000));
+
+        assertEquals(List.of("E 3 Cat false true"), bookings(this.loadConcert()));
+    }
+}
@@ -0,0 +1,103 @@
+package concerthallsystem.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests main.TimerWheel with a one millisecond tick, so the first level of
+ * the wheel covers 64 milliseconds and the second 4,096.
+ *
+ * @author Daniel Black
+ */
+
+public class TimerWheelTest
+{
+    private final TimerWheel wheel = new TimerWheel(1, "test-timer");
+
+    //Schedules a task that counts down the latch, and returns when it ran in milliseconds
+    private long timeUntilRun(long delayMillis) throws InterruptedException
+    {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        this.wheel.schedule(delayMillis, ran::countDown);
+        assertTrue(ran.await(delayMillis + 5000, TimeUnit.MILLISECONDS), "task never ran");
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    @Test
+    public void taskOnTheFirstLevelRunsAfterItsDelay() throws InterruptedException
+    {
+        assertTrue(this.timeUntilRun(20) >= 20);
+    }
+
+    @Test
+    public void taskDueNowRunsOnTheNextTick() throws InterruptedException
+    {
+        this.timeUntilRun(0);
+        this.timeUntilRun(-5);
+    }
+
+    @Test
+    public void taskIsMovedDownFromTheSecondLevel() throws InterruptedException
+    {
+        assertTrue(this.timeUntilRun(150) >= 150);
+    }
+
+    @Test
+    public void taskIsMovedDownFromTheThirdLevel() throws InterruptedException
+    {
+        assertTrue(this.timeUntilRun(4200) >= 4200);
+    }
+
+    @Test
+    public void tasksRunInTheOrderTheyAreDue() throws InterruptedException
+    {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch ran = new CountDownLatch(3);
+        this.wheel.schedule(200, () -> { order.add(200); ran.countDown(); });
+        this.wheel.schedule(10, () -> { order.add(10); ran.countDown(); });
+        this.wheel.schedule(90, () -> { order.add(90); ran.countDown(); });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(10, 90, 200), order);
+        assertEquals(0, this.wheel.size());
+    }
+
+    @Test
+    public void cancelledTaskNeverRuns() throws InterruptedException
+    {
+        CountDownLatch ran = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = this.wheel.schedule(100, ran::countDown);
+        assertEquals(1, this.wheel.size());
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, this.wheel.size());
+        assertFalse(ran.await(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void taskThatHasRunCannotBeCancelled() throws InterruptedException
+    {
+        CountDownLatch ran = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = this.wheel.schedule(5, ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+        assertEquals(0, this.wheel.size());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopTheWheel() throws InterruptedException
+    {
+        this.wheel.schedule(5, () -> {
+            throw new IllegalStateException("expected by the test");
+        });
+        this.timeUntilRun(20);
+    }
+}